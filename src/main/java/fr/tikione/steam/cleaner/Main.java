@@ -1,6 +1,7 @@
 package fr.tikione.steam.cleaner;
 
 import fr.tikione.ini.InfinitiveLoopException;
+import fr.tikione.steam.cleaner.cli.CommandLine;
 import fr.tikione.steam.cleaner.gui.dialog.JFrameMain;
 import fr.tikione.steam.cleaner.util.Log;
 
@@ -19,9 +20,12 @@ public class Main {
 	public static final String CONF_ENCODING = StandardCharsets.UTF_8.name();
 	public static final String CONF_NEWLINE = "\r\n";
 	public static boolean ARG_PORTABLE;
+	public static boolean ARG_HEADLESS;
 
 	/**
-	 * The application launcher. Starts GUI.
+	 * The application launcher. Starts GUI, or runs a command in headless mode if the first argument is a command
+	 * (<code>scan</code>, <code>report</code>, <code>delete</code>, <code>restore</code>,
+	 * <code>purge</code>, <code>dedup</code>, <code>help</code>).
 	 *
 	 * @param args command-line arguments.
 	 */
@@ -30,6 +34,9 @@ public class Main {
 		// Detect portable mode.
 		ARG_PORTABLE = Arrays.asList(args).contains("enablePortablemode");
 
+		// Detect headless mode.
+		ARG_HEADLESS = CommandLine.isCommand(args);
+
 		// Detect bundled JVM.
 		File jre = new File("./jre/");
 		boolean bundledJvm = jre.isDirectory() && jre.exists();
@@ -40,15 +47,32 @@ public class Main {
 				+ "; default locale is " + Locale.getDefault().toString()
 				+ "; portableMode " + (ARG_PORTABLE ? "enabled" : "disabled")
 				+ "; bundledJVM " + (bundledJvm ? "present" : "not found, will use system JVM"));
-		try {
-			javax.swing.UIManager.setLookAndFeel("com.sun.java.swing.plaf.windows.WindowsLookAndFeel");
-		} catch (ClassNotFoundException | InstantiationException | IllegalAccessException | UnsupportedLookAndFeelException e) {
-			Log.error(e);
+
+		// Headless mode: runs a command without loading any Swing nor AWT class.
+		if (ARG_HEADLESS) {
+			System.setProperty("java.awt.headless", "true");
+			System.exit(new CommandLine(System.out, System.err).run(args));
 		}
-		try {
-			new JFrameMain().setVisible(true);
-		} catch (IOException | InfinitiveLoopException ex) {
-			Log.error(ex);
+
+		Gui.start();
+	}
+
+	/**
+	 * GUI launcher. Kept apart from the application launcher, so the Swing classes are only loaded when the GUI starts.
+	 */
+	private static class Gui {
+
+		private static void start() {
+			try {
+				javax.swing.UIManager.setLookAndFeel("com.sun.java.swing.plaf.windows.WindowsLookAndFeel");
+			} catch (ClassNotFoundException | InstantiationException | IllegalAccessException | UnsupportedLookAndFeelException e) {
+				Log.error(e);
+			}
+			try {
+				new JFrameMain().setVisible(true);
+			} catch (IOException | InfinitiveLoopException ex) {
+				Log.error(ex);
+			}
 		}
 	}
 
@@ -0,0 +1,459 @@
+package fr.tikione.steam.cleaner.cli;
+
+import fr.tikione.ini.InfinitiveLoopException;
+import fr.tikione.steam.cleaner.util.Log;
+import fr.tikione.steam.cleaner.util.Redist;
+import fr.tikione.steam.cleaner.util.RedistSearch;
+import fr.tikione.steam.cleaner.util.conf.Config;
+import fr.tikione.steam.cleaner.util.conf.CustomFolders;
+import fr.tikione.steam.cleaner.util.conf.UncheckedItems;
+import fr.tikione.steam.cleaner.util.deletion.Deduplicator;
+import fr.tikione.steam.cleaner.util.deletion.DeletionTotals;
+import fr.tikione.steam.cleaner.util.deletion.ParallelDeleter;
+import fr.tikione.steam.cleaner.util.deletion.Quarantine;
+import fr.tikione.steam.cleaner.util.scan.ScanTask;
+
+import java.io.CharConversionException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Headless mode: searches and deletes redistributable packages from the command line, with the configuration of the
+ * main window. No Swing nor AWT class is loaded, so it can run on servers and build agents without a display.
+ */
+public class CommandLine {
+
+	/** Exit code: success. */
+	public static final int EXIT_OK = 0;
+
+	/** Exit code: the configuration can't be read or the search failed. */
+	public static final int EXIT_ERROR = 1;
+
+	/** Exit code: invalid command-line arguments. */
+	public static final int EXIT_USAGE = 2;
+
+	/** Exit code: some redistributable packages could not be deleted, or purged from the quarantine. */
+	public static final int EXIT_DELETION_FAILED = 3;
+
+	/** Exit code: some quarantined items could not be restored. */
+	public static final int EXIT_RESTORATION_FAILED = 4;
+
+	/** Exit code: some duplicates could not be replaced with hard links. */
+	public static final int EXIT_LINKING_FAILED = 5;
+
+	/** Available commands. */
+	private static final List<String> COMMANDS = Arrays.asList("scan", "report", "delete", "restore", "purge", "dedup");
+
+	private static final String USAGE = "Usage: <command> [options]\n"
+			+ "Commands:\n"
+			+ "  scan                  list the redistributable packages found: type (F or D), size in bytes, path and\n"
+			+ "                        description, separated by tabs\n"
+			+ "  report                show the redistributable packages found and their total size, by description\n"
+			+ "  delete                delete the redistributable packages found, except the ones unchecked in the\n"
+			+ "                        main window\n"
+			+ "  restore               move the quarantined redistributable packages back to their place\n"
+			+ "  purge                 delete all the quarantined redistributable packages\n"
+			+ "  dedup                 replace the identical files of the redistributable packages found with hard\n"
+			+ "                        links to a single copy\n"
+			+ "Options:\n"
+			+ "  --threads <n>         number of threads used to walk the folders (default: scanParallelism setting)\n"
+			+ "  --steam-dir <folder>  Steam folder (default: the latest Steam folder of the main window)\n"
+			+ "  --folder <folder>     folder to search instead of the custom folders, may be repeated\n"
+			+ "  --dry-run             with delete: only show the redistributable packages to delete; with dedup: only\n"
+			+ "                        show the identical files\n"
+			+ "  --quarantine          with delete: move the redistributable packages to a quarantine instead (default:\n"
+			+ "                        useQuarantine setting)\n"
+			+ "Exit codes: " + EXIT_OK + " success, " + EXIT_ERROR + " error, " + EXIT_USAGE + " invalid arguments, "
+			+ EXIT_DELETION_FAILED + " some redistributable packages could not be deleted or purged, " + EXIT_RESTORATION_FAILED
+			+ " some redistributable packages could not be restored, " + EXIT_LINKING_FAILED
+			+ " some identical files could not be replaced with hard links";
+
+	private final PrintStream out;
+
+	private final PrintStream err;
+
+	private String command = null;
+
+	private int threads = 0;
+
+	private File steamDir = null;
+
+	private List<File> folders = null;
+
+	private boolean dryRun = false;
+
+	private boolean useQuarantine = false;
+
+	/**
+	 * Indicates if command-line arguments ask for the headless mode.
+	 *
+	 * @param args command-line arguments.
+	 * @return true if the first argument is a command of the headless mode.
+	 */
+	public static boolean isCommand(String[] args) {
+		return args.length > 0 && (COMMANDS.contains(args[0]) || args[0].equals("help") || args[0].equals("--help"));
+	}
+
+	/**
+	 * Create the command-line handler.
+	 *
+	 * @param out receives the results.
+	 * @param err receives the errors.
+	 */
+	public CommandLine(PrintStream out, PrintStream err) {
+		this.out = out;
+		this.err = err;
+	}
+
+	/**
+	 * Run a command.
+	 *
+	 * @param args command-line arguments: the command, then its options.
+	 * @return the exit code.
+	 */
+	public int run(String[] args) {
+		if (!parse(args)) {
+			err.println(USAGE);
+			return EXIT_USAGE;
+		}
+		if (command.equals("help")) {
+			out.println(USAGE);
+			return EXIT_OK;
+		}
+		try {
+			Config config = Config.getInstance();
+			if (command.equals("restore")) {
+				return restore(new Quarantine(config.getQuarantineRetentionHours()));
+			}
+			if (command.equals("purge")) {
+				return purge(new Quarantine(config.getQuarantineRetentionHours()));
+			}
+			File steamFolder = steamDir != null ? steamDir : findSteamDir(config);
+			List<File> searchedFolders = folders;
+			if (searchedFolders == null) {
+				searchedFolders = new ArrayList<>(8);
+				for (String folder : new CustomFolders().getCustomFolders()) {
+					searchedFolders.add(new File(folder));
+				}
+			}
+			if (steamFolder == null && searchedFolders.isEmpty()) {
+				err.println("No Steam folder nor custom folder to search");
+				return EXIT_ERROR;
+			}
+			RedistSearch search = new RedistSearch(steamFolder, searchedFolders, new ScanTask(),
+					threads > 0 ? threads : config.getScanParallelism());
+			search.run();
+			switch (command) {
+				case "scan":
+					scan(search);
+					return EXIT_OK;
+				case "report":
+					report(search);
+					return EXIT_OK;
+				case "dedup":
+					return dedup(search, config.getDedupHashWorkers());
+				default:
+					Quarantine quarantine = useQuarantine || config.getUseQuarantine()
+							? new Quarantine(config.getQuarantineRetentionHours()) : null;
+					return delete(search, new UncheckedItems().getUncheckedItems(), config.getDeletionWorkersPerDevice(),
+							quarantine);
+			}
+		} catch (IOException | InfinitiveLoopException | InterruptedException | RuntimeException ex) {
+			Log.error(ex);
+			err.println("Error: " + ex);
+			return EXIT_ERROR;
+		}
+	}
+
+	/**
+	 * Read the command and its options.
+	 *
+	 * @param args command-line arguments.
+	 * @return true if the arguments are valid.
+	 */
+	private boolean parse(String[] args) {
+		if (args.length == 0) {
+			return false;
+		}
+		command = args[0].equals("--help") ? "help" : args[0];
+		if (!COMMANDS.contains(command) && !command.equals("help")) {
+			return false;
+		}
+		for (int i = 1; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("enablePortablemode")) {
+				continue;
+			}
+			if (arg.equals("--dry-run")) {
+				dryRun = true;
+				continue;
+			}
+			if (arg.equals("--quarantine")) {
+				useQuarantine = true;
+				continue;
+			}
+			if (i + 1 >= args.length) {
+				return false;
+			}
+			String value = args[++i];
+			switch (arg) {
+				case "--threads":
+					try {
+						threads = Integer.parseInt(value);
+					} catch (NumberFormatException ex) {
+						return false;
+					}
+					if (threads < 1) {
+						return false;
+					}
+					break;
+				case "--steam-dir":
+					steamDir = new File(value);
+					break;
+				case "--folder":
+					if (folders == null) {
+						folders = new ArrayList<>(4);
+					}
+					folders.add(new File(value));
+					break;
+				default:
+					return false;
+			}
+		}
+		return (!dryRun || command.equals("delete") || command.equals("dedup"))
+				&& (!useQuarantine || command.equals("delete"));
+	}
+
+	/**
+	 * Find the Steam folder: the latest one used in the main window, otherwise the first possible Steam folder that
+	 * exists.
+	 *
+	 * @param config the configuration.
+	 * @return the Steam folder, null if not found.
+	 * @throws CharConversionException if an error occurs while reading the configuration.
+	 * @throws InfinitiveLoopException if an error occurs while reading the configuration.
+	 */
+	private static File findSteamDir(Config config)
+			throws CharConversionException, InfinitiveLoopException {
+		String latestSteamDir = config.getLatestSteamFolder();
+		if (latestSteamDir.length() > 0) {
+			return new File(latestSteamDir);
+		}
+		for (String possibleSteamDir : config.getPossibleSteamFolders()) {
+			File folder = new File(possibleSteamDir);
+			if (folder.isDirectory()) {
+				return folder;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Print the redistributable packages found, one per line.
+	 *
+	 * @param search the search results.
+	 */
+	private void scan(RedistSearch search) {
+		for (Redist redist : search.getFoundFiles()) {
+			out.println("F\t" + redist.getSizeInBytes() + '\t' + redist.getFile().getAbsolutePath() + '\t'
+					+ redist.getDescription());
+		}
+		for (Redist redist : search.getFoundFolders()) {
+			out.println("D\t" + redist.getSizeInBytes() + '\t' + redist.getFile().getAbsolutePath() + File.separator + '\t'
+					+ redist.getDescription());
+		}
+	}
+
+	/**
+	 * Print the number and total size of the redistributable packages found, by description.
+	 *
+	 * @param search the search results.
+	 */
+	private void report(RedistSearch search) {
+		Map<String, long[]> byDescription = new LinkedHashMap<>(64);
+		long totalSize = 0;
+		List<Redist> found = new ArrayList<>(search.getFoundFiles());
+		found.addAll(search.getFoundFolders());
+		for (Redist redist : found) {
+			long size = redist.getSizeInBytes();
+			long[] stats = byDescription.computeIfAbsent(redist.getDescription(), description -> new long[2]);
+			stats[0]++;
+			stats[1] += size;
+			totalSize += size;
+		}
+		byDescription.entrySet().stream()
+				.sorted((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]))
+				.forEach(entry -> out.println(String.format(Locale.ROOT, "%10s  %5d  %s",
+						toMB(entry.getValue()[1]), entry.getValue()[0], entry.getKey())));
+		out.println(String.format(Locale.ROOT, "%10s  %5d  %s", toMB(totalSize), found.size(),
+				"total (" + search.getFoundFiles().size() + " files, " + search.getFoundFolders().size() + " folders)"));
+	}
+
+	/**
+	 * Delete the redistributable packages found, except the unchecked ones. Several are deleted at once on each drive.
+	 *
+	 * @param search the search results.
+	 * @param unchecked the paths of the redistributable packages unchecked in the main window (folders ending with a
+	 * file separator).
+	 * @param workersPerDevice number of threads deleting files at the same time on each drive.
+	 * @param quarantine receives the redistributable packages instead of deleting them, null to delete them.
+	 * @return the exit code.
+	 * @throws InterruptedException if interrupted while waiting for the deletion threads.
+	 */
+	private int delete(RedistSearch search, Set<String> unchecked, int workersPerDevice, Quarantine quarantine)
+			throws InterruptedException {
+		List<File> files = new ArrayList<>(search.getFoundFiles().size());
+		List<File> folders = new ArrayList<>(search.getFoundFolders().size());
+		Map<File, Long> sizes = new HashMap<>(64);
+		for (Redist redist : search.getFoundFiles()) {
+			File file = redist.getFile();
+			if (unchecked.contains(file.getAbsolutePath())) {
+				out.println("kept\t" + file.getAbsolutePath());
+			} else {
+				files.add(file);
+				sizes.put(file, redist.getSizeInBytes());
+			}
+		}
+		for (Redist redist : search.getFoundFolders()) {
+			File folder = redist.getFile();
+			if (unchecked.contains(folder.getAbsolutePath() + File.separator)) {
+				out.println("kept\t" + folder.getAbsolutePath() + File.separator);
+			} else {
+				folders.add(folder);
+				sizes.put(folder, redist.getSizeInBytes());
+			}
+		}
+		if (dryRun) {
+			long totalSize = 0;
+			for (File file : files) {
+				totalSize += sizes.get(file);
+				out.println("to delete\t" + file.getAbsolutePath());
+			}
+			for (File folder : folders) {
+				totalSize += sizes.get(folder);
+				out.println("to delete\t" + folder.getAbsolutePath() + File.separator);
+			}
+			out.println("Space to save: " + toMB(totalSize));
+			return EXIT_OK;
+		}
+		DeletionTotals totals = new ParallelDeleter(workersPerDevice, quarantine, new ParallelDeleter.Listener() {
+			@Override
+			public void deleted(File target, boolean folder, boolean deleted, long freedBytes) {
+				out.println((deleted ? "deleted\t" : "failed\t") + target.getAbsolutePath()
+						+ (folder ? File.separator : ""));
+			}
+
+			@Override
+			public void quarantined(File target, boolean folder) {
+				out.println("quarantined\t" + target.getAbsolutePath() + (folder ? File.separator : ""));
+			}
+		}).delete(files, folders);
+		if (totals.getQuarantined() > 0) {
+			out.println("Moved to quarantine: " + totals.getQuarantined() + " (run purge to free their space)");
+		}
+		out.println("Space saved: " + toMB(totals.getFreedBytes()));
+		if (totals.getFailed() > 0) {
+			err.println(totals.getFailed() + " redistributable packages could not be deleted");
+			return EXIT_DELETION_FAILED;
+		}
+		return EXIT_OK;
+	}
+
+	/**
+	 * Replace the identical files of the redistributable packages found with hard links to a single copy.
+	 *
+	 * @param search the search results.
+	 * @param hashWorkers number of threads hashing files at the same time.
+	 * @return the exit code.
+	 * @throws InterruptedException if interrupted while waiting for the hash threads.
+	 */
+	private int dedup(RedistSearch search, int hashWorkers)
+			throws InterruptedException {
+		List<File> files = new ArrayList<>(search.getFoundFiles().size());
+		for (Redist redist : search.getFoundFiles()) {
+			files.add(redist.getFile());
+		}
+		List<File> folders = new ArrayList<>(search.getFoundFolders().size());
+		for (Redist redist : search.getFoundFolders()) {
+			folders.add(redist.getFile());
+		}
+		Deduplicator deduplicator = new Deduplicator(hashWorkers);
+		List<Deduplicator.Group> groups = deduplicator.findDuplicates(files, folders);
+		if (dryRun) {
+			long totalSize = 0;
+			for (Deduplicator.Group group : groups) {
+				out.println("original\t" + group.getSize() + '\t' + group.getOriginal().getAbsolutePath());
+				for (File duplicate : group.getDuplicates()) {
+					out.println("duplicate\t" + group.getSize() + '\t' + duplicate.getAbsolutePath());
+				}
+				totalSize += group.getSavableBytes();
+			}
+			out.println("Space to save: " + toMB(totalSize));
+			return EXIT_OK;
+		}
+		DeletionTotals totals = deduplicator.link(groups, (duplicate, original, linked, freedBytes) ->
+				out.println((linked ? "linked\t" : "failed\t") + duplicate.getAbsolutePath() + '\t'
+						+ original.getAbsolutePath()));
+		out.println("Space saved: " + toMB(totals.getFreedBytes()));
+		if (totals.getFailed() > 0) {
+			err.println(totals.getFailed() + " identical files could not be replaced with hard links");
+			return EXIT_LINKING_FAILED;
+		}
+		return EXIT_OK;
+	}
+
+	/**
+	 * Move the quarantined redistributable packages back to their place.
+	 *
+	 * @param quarantine the quarantine.
+	 * @return the exit code.
+	 */
+	private int restore(Quarantine quarantine) {
+		int[] failed = {0};
+		quarantine.restore((origin, restored) -> {
+			out.println((restored ? "restored\t" : "failed\t") + origin.getAbsolutePath());
+			if (!restored) {
+				failed[0]++;
+			}
+		});
+		if (failed[0] > 0) {
+			err.println(failed[0] + " redistributable packages could not be restored");
+			return EXIT_RESTORATION_FAILED;
+		}
+		return EXIT_OK;
+	}
+
+	/**
+	 * Delete all the quarantined redistributable packages, whatever their retention time.
+	 *
+	 * @param quarantine the quarantine.
+	 * @return the exit code.
+	 */
+	private int purge(Quarantine quarantine) {
+		int[] failed = {0};
+		quarantine.purge(true, (origin, purged) -> {
+			out.println((purged ? "purged\t" : "failed\t") + origin.getAbsolutePath());
+			if (!purged) {
+				failed[0]++;
+			}
+		});
+		if (failed[0] > 0) {
+			err.println(failed[0] + " redistributable packages could not be purged");
+			return EXIT_DELETION_FAILED;
+		}
+		return EXIT_OK;
+	}
+
+	private static String toMB(long bytes) {
+		return String.format(Locale.ROOT, "%.2f MB", bytes / (1024.0 * 1024.0));
+	}
+}
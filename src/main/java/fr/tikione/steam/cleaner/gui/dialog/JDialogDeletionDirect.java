@@ -1,15 +1,21 @@
 package fr.tikione.steam.cleaner.gui.dialog;
 
-import fr.tikione.steam.cleaner.util.FileUtils;
+import fr.tikione.ini.InfinitiveLoopException;
 import fr.tikione.steam.cleaner.util.GraphicsUtils;
 import fr.tikione.steam.cleaner.util.Log;
+import fr.tikione.steam.cleaner.util.TextAreaLog;
 import fr.tikione.steam.cleaner.util.Translation;
 import fr.tikione.steam.cleaner.util.UpdateManager;
+import fr.tikione.steam.cleaner.util.conf.Config;
+import fr.tikione.steam.cleaner.util.deletion.DeletionTotals;
+import fr.tikione.steam.cleaner.util.deletion.ParallelDeleter;
+import fr.tikione.steam.cleaner.util.deletion.Quarantine;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.CharConversionException;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
@@ -34,6 +40,15 @@ public class JDialogDeletionDirect extends JDialog {
 
     private List<File> foldersToDel = null;
 
+    /** Maximum number of lines kept in the deletion log. */
+    private static final int LOG_MAX_LINES = 5000;
+
+    /** The program language translation handler. */
+    private final Translation translation;
+
+    /** The deletion log, written by the deletion threads. */
+    private final TextAreaLog deletionLog;
+
     /**
      * Create new form JDialogDeletionDirect.
      *
@@ -42,69 +57,15 @@ public class JDialogDeletionDirect extends JDialog {
      * @param translation the program language translation handler.
      * @throws IOException
      */
-    @SuppressWarnings({"LeakingThisInConstructor", "CallToThreadStartDuringObjectConstruction"})
+    @SuppressWarnings("LeakingThisInConstructor")
     public JDialogDeletionDirect(java.awt.Frame parent, boolean modal, final Translation translation)
             throws IOException {
         super(parent, modal);
         initComponents();
         initTranslateComponents(translation);
         GraphicsUtils.setFrameCentered(this);
-        new Thread(() -> {
-			String labelOK = translation.getString(Translation.SEC_DELETE, "info.success");
-			String labelERROR = translation.getString(Translation.SEC_DELETE, "info.error");
-			String labelDelFile = translation.getString(Translation.SEC_DELETE, "info.deleteFile");
-			String labelDelFolder = translation.getString(Translation.SEC_DELETE, "info.deleteFolder");
-			String labelSaved = translation.getString(Translation.SEC_DELETE, "info.spaceSaved");
-			long totalSaved = 0;
-			for (File file : filesToDel) {
-				if (file.exists()) {
-					jTextAreaDeletionLog.setText(jTextAreaDeletionLog.getText() + "\r\n- "
-							+ labelDelFile.replace("{0}", file.getAbsolutePath()));
-					boolean res;
-					long fileSize = org.apache.commons.io.FileUtils.sizeOf(file);
-					try {
-						res = file.delete();
-					} catch (Exception ex) {
-						res = false;
-						Log.error(ex);
-					}
-					if (res) {
-						totalSaved += fileSize;
-					}
-					jTextAreaDeletionLog.setText(jTextAreaDeletionLog.getText() + " " + (res ? labelOK : labelERROR));
-					Log.info("Delete file : " + file.getAbsolutePath() + " ... " + (res ? "OK" : "ERROR"));
-				} else {
-					Log.info("Delete file : " + file.getAbsolutePath() + " ... SKIPPED (already deleted)");
-				}
-			}
-			for (File folder : foldersToDel) {
-				if (folder.exists()) {
-					jTextAreaDeletionLog.setText(jTextAreaDeletionLog.getText() + "\r\n- "
-							+ labelDelFolder.replace("{0}", folder.getAbsolutePath()));
-					boolean res;
-					long folderSize = org.apache.commons.io.FileUtils.sizeOfDirectory(folder);
-					try {
-						res = FileUtils.deleteFolder(folder);
-					} catch (Exception ex) {
-						res = false;
-						Log.error(ex);
-					}
-					if (res) {
-						totalSaved += folderSize;
-					}
-					jTextAreaDeletionLog.setText(jTextAreaDeletionLog.getText() + " " + (res ? labelOK : labelERROR));
-					Log.info("Delete folder : " + folder.getAbsolutePath() + " ... " + (res ? "OK" : "ERROR"));
-				} else {
-					Log.info("Delete folder : " + folder.getAbsolutePath() + " ... SKIPPED (already deleted)");
-				}
-			}
-			double dSize = totalSaved;
-			dSize /= (1024.0 * 1024.0);
-			dSize = Math.round(dSize * 100.0) / 100.0;
-			jTextAreaDeletionLog.setText(jTextAreaDeletionLog.getText() + "\r\n\r\n"
-					+ labelSaved.replace("{0}", Double.toString(dSize)));
-			Log.info(labelSaved.replace("{0}", Double.toString(dSize)));
-		}).start();
+        this.translation = translation;
+        deletionLog = new TextAreaLog(jTextAreaDeletionLog, LOG_MAX_LINES);
     }
 
     private void initTranslateComponents(Translation translation) {
@@ -115,10 +76,74 @@ public class JDialogDeletionDirect extends JDialog {
                 + "<br><font color=\"blue\">http://sourceforge.net/p/tikione/donate/</font></body></html>");
     }
 
+    /**
+     * Set the files and folders to delete, and start deleting them in background.
+     *
+     * @param filesToDel the files to delete.
+     * @param foldersToDel the folders to delete.
+     */
     @SuppressWarnings("AssignmentToCollectionOrArrayFieldFromParameter")
     public void setFilesToDelete(List<File> filesToDel, List<File> foldersToDel) {
         this.filesToDel = filesToDel;
         this.foldersToDel = foldersToDel;
+        new Thread(this::deleteAll, "deletion").start();
+    }
+
+    /**
+     * Delete the files and folders, several at once on each drive, and show the outcome of each deletion. If the
+     * quarantine is enabled, they are moved to the quarantine instead, and the expired quarantined items are purged in
+     * background.
+     */
+    private void deleteAll() {
+        String labelOK = translation.getString(Translation.SEC_DELETE, "info.success");
+        String labelERROR = translation.getString(Translation.SEC_DELETE, "info.error");
+        String labelDelFile = translation.getString(Translation.SEC_DELETE, "info.deleteFile");
+        String labelDelFolder = translation.getString(Translation.SEC_DELETE, "info.deleteFolder");
+        String labelSaved = translation.getString(Translation.SEC_DELETE, "info.spaceSaved");
+        String labelQuarantined = translation.getString(Translation.SEC_DELETE, "info.quarantined");
+        int workersPerDevice;
+        Quarantine quarantine = null;
+        int retentionHours = 0;
+        try {
+            Config config = Config.getInstance();
+            workersPerDevice = config.getDeletionWorkersPerDevice();
+            if (config.getUseQuarantine()) {
+                retentionHours = config.getQuarantineRetentionHours();
+                quarantine = new Quarantine(retentionHours);
+            }
+        } catch (CharConversionException | InfinitiveLoopException ex) {
+            Log.error(ex);
+            workersPerDevice = 1;
+        }
+        ParallelDeleter.Listener listener = (target, folder, deleted, freedBytes) -> {
+            String line = "\r\n- " + (folder ? labelDelFolder : labelDelFile).replace("{0}", target.getAbsolutePath())
+                    + " " + (deleted ? labelOK : labelERROR);
+            deletionLog.append(line);
+        };
+        ParallelDeleter deleter = new ParallelDeleter(workersPerDevice, quarantine, listener);
+        DeletionTotals totals;
+        try {
+            totals = deleter.delete(filesToDel, foldersToDel);
+        } catch (InterruptedException ex) {
+            Log.error(ex);
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (totals.getQuarantined() > 0) {
+            String quarantined = labelQuarantined.replace("{0}", Long.toString(totals.getQuarantined()))
+                    .replace("{1}", Integer.toString(retentionHours));
+            deletionLog.append("\r\n\r\n" + quarantined);
+            Log.info(quarantined);
+        }
+        if (quarantine != null) {
+            quarantine.startPurger();
+        }
+        double dSize = totals.getFreedBytes();
+        dSize /= (1024.0 * 1024.0);
+        dSize = Math.round(dSize * 100.0) / 100.0;
+        String saved = labelSaved.replace("{0}", Double.toString(dSize));
+        deletionLog.append("\r\n\r\n" + saved);
+        Log.info(saved);
     }
 
     /**
@@ -4,18 +4,24 @@ import fr.tikione.ini.InfinitiveLoopException;
 import fr.tikione.ini.util.StringHelper;
 import fr.tikione.steam.cleaner.Version;
 import fr.tikione.steam.cleaner.util.FileComparator;
-import fr.tikione.steam.cleaner.util.FileUtils;
 import fr.tikione.steam.cleaner.util.GraphicsUtils;
 import fr.tikione.steam.cleaner.util.Log;
 import fr.tikione.steam.cleaner.util.Redist;
+import fr.tikione.steam.cleaner.util.RedistSearch;
 import fr.tikione.steam.cleaner.util.RedistTableModel;
 import fr.tikione.steam.cleaner.util.Translation;
 import fr.tikione.steam.cleaner.util.UpdateManager;
 import fr.tikione.steam.cleaner.util.conf.Config;
 import fr.tikione.steam.cleaner.util.conf.CustomFolders;
 import fr.tikione.steam.cleaner.util.conf.DangerousItems;
+import fr.tikione.steam.cleaner.util.conf.LastResults;
 import fr.tikione.steam.cleaner.util.conf.Patterns;
 import fr.tikione.steam.cleaner.util.conf.UncheckedItems;
+import fr.tikione.steam.cleaner.util.deletion.Quarantine;
+import fr.tikione.steam.cleaner.util.scan.FolderWatcher;
+import fr.tikione.steam.cleaner.util.scan.ScanEntry;
+import fr.tikione.steam.cleaner.util.scan.ScanProgress;
+import fr.tikione.steam.cleaner.util.scan.ScanTask;
 
 import javax.swing.*;
 import javax.swing.GroupLayout.Alignment;
@@ -36,9 +42,16 @@ import java.awt.event.WindowStateListener;
 import java.io.CharConversionException;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
@@ -47,8 +60,8 @@ import java.util.regex.Pattern;
 @SuppressWarnings("serial")
 public class JFrameMain extends JFrame {
 
-	/** Indicate if the application in exiting. */
-	private static boolean CLOSING_APP = false;
+	/** Delay between two refreshes of the search progress (in milliseconds). */
+	private static final int PROGRESS_REFRESH_DELAY = 100;
 
 	/** Initial label of the Reload button. */
 	private String btnReloadLabelInitial;
@@ -59,13 +72,19 @@ public class JFrameMain extends JFrame {
 	/** Initial label of the table that contains list of redistributable packages found. */
 	private String tblRedistLabelDefault;
 
-	/** Default table model for the list of redistributable packages found. */
-	private DefaultTableModel model;
+	/** Table model for the list of redistributable packages found. */
+	private RedistTableModel model;
 
 	private final DefaultListModel<File> listModel;
 
-	/** List of non-checked items in the list of redistributable packages. */
-	private List<String> uncheckedRedistPathList = new ArrayList<>(8);
+	/** Redistributable packages found by the latest search, saved between two runs. */
+	private final LastResults lastResults;
+
+	/** The running search, null if none. Cancelled by the Stop button or when the application is exiting. */
+	private volatile ScanTask searchTask = null;
+
+	/** Watches the searched folders after a search, null if disabled. */
+	private FolderWatcher folderWatcher = null;
 
 	/** Application configuration handler. */
 	private final Config config;
@@ -141,7 +160,6 @@ public class JFrameMain extends JFrame {
 		}
 
 		uncheckedItems = new UncheckedItems();
-		uncheckedRedistPathList.addAll(uncheckedItems.getUncheckedItems());
 		setTableModelUI();
 
 		listModel = new DefaultListModel<>();
@@ -152,10 +170,221 @@ public class JFrameMain extends JFrame {
 		customFoldersAsStr.stream().forEach((foldername) -> {
 			listModel.addElement(new File(foldername));
 		});
+
+		lastResults = new LastResults();
+		restoreLastResults();
+
+		// Purge in background the items quarantined by the previous deletions, once their retention time is over.
+		new Quarantine(config.getQuarantineRetentionHours()).startPurger();
 		
 		jButtonReloadRedistList.setEnabled(true);
 	}
 
+	/**
+	 * Fill the table with the redistributable packages found by the latest search, then remove the ones that don't
+	 * exist anymore. The results file is read and the listed paths are checked in background, so the window shows up
+	 * immediately. Nothing is restored if a search was started in the meantime.
+	 */
+	private void restoreLastResults() {
+		new Thread(() -> {
+			List<LastResults.Item> items = lastResults.load();
+			if (items.isEmpty()) {
+				return;
+			}
+			// not shown yet: the model can be filled by this thread
+			RedistTableModel restoredModel = new RedistTableModel(translation);
+			RedistTableModel.Rows rows = new RedistTableModel.Rows(items.size());
+			for (LastResults.Item item : items) {
+				rows.add(item.isChecked(), item.getPath(), item.getSize(), item.getDescription());
+			}
+			restoredModel.addRows(rows);
+			SwingUtilities.invokeLater(() -> {
+				if (model.getRowCount() == 0 && !jButtonStopSearch.isVisible()) {
+					model = restoredModel;
+					setTableModelUI();
+					showResultsCount();
+				}
+			});
+
+			// Only stat the listed paths: a file's size is refreshed, a folder is kept with its latest known size.
+			Set<String> vanished = new HashSet<>(8);
+			Map<String, Long> resized = new HashMap<>(8);
+			for (LastResults.Item item : items) {
+				File file = new File(item.getPath());
+				if (item.getPath().endsWith(File.separator)) {
+					if (!file.isDirectory()) {
+						vanished.add(item.getPath());
+					}
+				} else if (!file.isFile()) {
+					vanished.add(item.getPath());
+				} else if (file.length() != item.getSize()) {
+					resized.put(item.getPath(), file.length());
+				}
+			}
+			SwingUtilities.invokeLater(() -> {
+				if (model != restoredModel || (vanished.isEmpty() && resized.isEmpty())) {
+					return;
+				}
+				for (int row = model.getRowCount() - 1; row >= 0; row--) {
+					String path = model.getPath(row);
+					if (vanished.contains(path)) {
+						model.removeRow(row);
+					} else if (resized.containsKey(path)) {
+						model.setSizeInBytes(row, resized.get(path));
+					}
+				}
+				showResultsCount();
+			});
+		}, "last-results").start();
+	}
+
+	/**
+	 * Show the progress of a search in the window title.
+	 *
+	 * @param progress the search progress.
+	 */
+	private void showProgress(ScanProgress progress) {
+		Path folder = progress.getCurrentFolder();
+		if (folder == null) {
+			return;
+		}
+		String nameFiles = translation.getString(Translation.SEC_WMAIN, "redistList.item.files");
+		String nameFolders = translation.getString(Translation.SEC_WMAIN, "redistList.item.folders");
+		setTitle(folder.toString() + File.separatorChar + "   (" + progress.getFolders() + " " + nameFolders + ", "
+				+ progress.getFiles() + " " + nameFiles + ", " + progress.getBytes() / (1024 * 1024) + " MB)   "
+				+ tblRedistLabelDefault + " " + progress.getMatches());
+	}
+
+	/**
+	 * Show the number of redistributable packages listed in the table, and their total size.
+	 */
+	private void showResultsCount() {
+		int nbFiles = 0;
+		int nbFolders = 0;
+		for (int row = 0; row < model.getRowCount(); row++) {
+			if (model.getPath(row).endsWith(File.separator)) {
+				nbFolders++;
+			} else {
+				nbFiles++;
+			}
+		}
+		String nameFile = translation.getString(Translation.SEC_WMAIN, "redistList.item.file");
+		String nameFiles = translation.getString(Translation.SEC_WMAIN, "redistList.item.files");
+		String nameFolder = translation.getString(Translation.SEC_WMAIN, "redistList.item.folder");
+		String nameFolders = translation.getString(Translation.SEC_WMAIN, "redistList.item.folders");
+		jPanelList.setBorder(BorderFactory.createTitledBorder(tblRedistLabelDefault + " "
+				+ nbFiles + " " + (nbFiles > 1 ? nameFiles : nameFile) + ", " + nbFolders + " "
+				+ (nbFolders > 1 ? nameFolders : nameFolder)));
+		showCheckedSize();
+		jButtonRemoveRedistItemsFromDisk.setEnabled(model.getRowCount() > 0);
+	}
+
+	/**
+	 * Add a redistributable package to a batch of rows for the table.
+	 *
+	 * @param rows the batch of rows.
+	 * @param redist the redistributable package found.
+	 * @param folder indicates if the redistributable package is a folder.
+	 * @param bytes the size in bytes of the redistributable package.
+	 */
+	private void addRedistRow(RedistTableModel.Rows rows, Redist redist, boolean folder, long bytes) {
+		String path = redist.getFile().getAbsolutePath() + (folder ? File.separator : "");
+		String type = translation.getString(Translation.SEC_WMAIN,
+				folder ? "redistList.item.folderUppercase" : "redistList.item.fileUpperCase");
+		rows.add(!uncheckedItems.isUnchecked(path), path, bytes, " (" + type + ") " + redist.getDescription());
+	}
+
+	/**
+	 * Watch the searched folders, and update the table as redistributable packages appear or disappear. Replaces the
+	 * previous watcher, if any.
+	 *
+	 * @param searchedFolders the searched folders, by search depth.
+	 * @param tc checks the new files and folders.
+	 * @throws CharConversionException if an error occurs while reading the watcher settings.
+	 * @throws InfinitiveLoopException if an error occurs while reading the watcher settings.
+	 */
+	private void startFolderWatcher(Map<Integer, List<File>> searchedFolders, FileComparator tc)
+			throws CharConversionException,
+			InfinitiveLoopException {
+		stopFolderWatcher();
+		folderWatcher = new FolderWatcher(dangerousFolders, config.getMaxWatchedFolders(),
+				TimeUnit.MINUTES.toMillis(config.getWatchRescanPeriod()), new FolderWatcher.Listener() {
+			@Override
+			public void entryAdded(ScanEntry entry) {
+				Redist redist = tc.match(entry);
+				if (redist != null) {
+					long bytes = redist.getSizeInBytes();
+					SwingUtilities.invokeLater(() -> {
+						String path = redist.getFile().getAbsolutePath() + (entry.isDirectory() ? File.separator : "");
+						if (!jButtonStopSearch.isVisible() && !model.contains(path)) {
+							RedistTableModel.Rows rows = new RedistTableModel.Rows(1);
+							addRedistRow(rows, redist, entry.isDirectory(), bytes);
+							model.addRows(rows);
+							showResultsCount();
+						}
+					});
+				}
+			}
+
+			@Override
+			public void pathRemoved(Path path) {
+				SwingUtilities.invokeLater(() -> {
+					if (jButtonStopSearch.isVisible()) {
+						return;
+					}
+					String removed = path.toString();
+					for (int row = model.getRowCount() - 1; row >= 0; row--) {
+						String rowPath = model.getPath(row);
+						if (rowPath.equals(removed) || rowPath.startsWith(removed + File.separator)) {
+							model.removeRow(row);
+						}
+					}
+					showResultsCount();
+				});
+			}
+
+			@Override
+			public void rescanNeeded() {
+				SwingUtilities.invokeLater(() -> {
+					if (jButtonReloadRedistList.isEnabled()) {
+						searchRedistPackagesOnDisk(jButtonReloadRedistList);
+					}
+				});
+			}
+		});
+		try {
+			for (Map.Entry<Integer, List<File>> folders : searchedFolders.entrySet()) {
+				folderWatcher.watch(folders.getValue(), folders.getKey());
+			}
+			folderWatcher.start();
+		} catch (IOException ex) {
+			Log.error(ex);
+		}
+	}
+
+	private void stopFolderWatcher() {
+		if (folderWatcher != null) {
+			folderWatcher.stop();
+			folderWatcher = null;
+		}
+	}
+
+	/**
+	 * Save the redistributable packages listed in the table, to restore them at next startup.
+	 */
+	private void memorizeLastResults() {
+		List<LastResults.Item> items = new ArrayList<>(model.getRowCount());
+		for (int row = 0; row < model.getRowCount(); row++) {
+			items.add(new LastResults.Item(model.getPath(row), model.getSizeInBytes(row), model.getDescription(row),
+					model.isChecked(row)));
+		}
+		try {
+			lastResults.save(items);
+		} catch (IOException ex) {
+			Log.error(ex);
+		}
+	}
+
 	/**
 	 * Additional components initialization : translate messages and titles, and make some custom UI transformations.
 	 *
@@ -214,51 +443,30 @@ public class JFrameMain extends JFrame {
 		}
 	}
 	
-	private void recomputeTotalSizeMB() {
-		float fsize = 0;
-		for (int i = 0; i < model.getRowCount(); i++) {
-			if (Boolean.parseBoolean(model.getValueAt(i, 0).toString())) {
-				fsize += Float.parseFloat(model.getValueAt(i, 2).toString());
-			}
-		}
+	/**
+	 * Show the total size of the checked redistributable packages on the remove button. The model keeps the total up
+	 * to date, so this doesn't depend on the number of rows.
+	 */
+	private void showCheckedSize() {
 		String btnLabel = translation.getString(Translation.SEC_WMAIN, "button.removeSelectedItems");
-		jButtonRemoveRedistItemsFromDisk.setText(btnLabel + " (" + (int)fsize + "MB)");
+		jButtonRemoveRedistItemsFromDisk.setText(btnLabel + " (" + model.getCheckedBytes() / (1024 * 1024) + "MB)");
 	}
 
 	/**
 	 * Store the list of unchecked items (redistributable packages shown in the main table) to a configuration file.
 	 */
 	private void memorizeUncheckedItemsToConf() {
-		try {
-			if (fSteamDir != null) {
-				List<String> nowUncheckedItemsList = new ArrayList<>(8);
-				List<String> nowCheckedItemsList = new ArrayList<>(8);
-				List<String> newUncheckedItemsList = new ArrayList<>(8);
-				List<String> prevUncheckedItems = uncheckedItems.getUncheckedItems();
-				for (int row = 0; row < model.getRowCount(); row++) {
-					boolean checked = (Boolean) model.getValueAt(row, 0);
-					String redistFullPath = (String) model.getValueAt(row, 1);
-					if (checked) {
-						nowCheckedItemsList.add(redistFullPath);
-					} else {
-						nowUncheckedItemsList.add(redistFullPath);
-					}
-				}
-				newUncheckedItemsList.addAll(nowUncheckedItemsList);
-				for (String prevUncheckedItem : prevUncheckedItems) {
-					if (!nowCheckedItemsList.contains(prevUncheckedItem) && !newUncheckedItemsList.contains(prevUncheckedItem)) {
-						newUncheckedItemsList.add(prevUncheckedItem);
-					}
-				}
-				uncheckedItems.setUncheckedItems(newUncheckedItemsList);
+		if (fSteamDir != null) {
+			// items not listed anymore keep their memorized state
+			for (int row = 0; row < model.getRowCount(); row++) {
+				uncheckedItems.setUnchecked(model.getPath(row), !model.isChecked(row));
 			}
-		} catch (CharConversionException | InfinitiveLoopException ex) {
-			Log.error(ex);
 		}
 	}
 
 	private void searchRedistPackagesOnDisk(final JButton buttonReload) {
 		buttonReload.setEnabled(false);
+		stopFolderWatcher();
 		memorizeUncheckedItemsToConf();
 		jPanelList.setBorder(BorderFactory.createTitledBorder(tblRedistLabelDefault));
 		String sSteamDir = jTextFieldSteamDir.getText();
@@ -269,88 +477,54 @@ public class JFrameMain extends JFrame {
 			fSteamDir = new File(sSteamDir);
 			
 			// go to steamapps folder if exists (fix https://github.com/jonathanlermitage/tikione-steam-cleaner/issues/27)
-			if (Objects.requireNonNull(fSteamDir.listFiles((dir, name) -> name.equalsIgnoreCase("steamapps"))).length > 0) {
-				fSteamDir = new File(fSteamDir, "steamapps/");
-				Log.info("steamapps folder found");
-			}
+			fSteamDir = RedistSearch.getSteamappsDir(fSteamDir);
 			
 			boolean steamExists = fSteamDir.isDirectory() && fSteamDir.exists();
 			if (!listModel.isEmpty() || steamExists) {
 				enableAllUI(false);
 				buttonReload.setText(btnReloadLabelWorking);
-				final JFrame thisframe = this;
 				Thread tJob = new Thread(() -> {
 					try {
 						jButtonStopSearch.setVisible(true);
-						String nameFile = translation.getString(Translation.SEC_WMAIN, "redistList.item.file");
-						String nameFileUpCase = translation.getString(Translation.SEC_WMAIN, "redistList.item.fileUpperCase");
-						String nameFiles = translation.getString(Translation.SEC_WMAIN, "redistList.item.files");
-						String nameFolder = translation.getString(Translation.SEC_WMAIN, "redistList.item.folder");
-						String nameFolderUpCase = translation.getString(Translation.SEC_WMAIN, "redistList.item.folderUppercase");
-						String nameFolders = translation.getString(Translation.SEC_WMAIN, "redistList.item.folders");
 						model = new RedistTableModel(translation);
 						setTableModelUI();
-						List<File> srcFolders = new ArrayList<>(32);
-						if (fSteamDir.exists()) {
-							srcFolders.add(fSteamDir);
-						}
-						File[] customFolders1 = customFoldersListStrToFiles();
-						for (File customFolder : customFolders1) {
-							if (!srcFolders.contains(customFolder)) {
-								srcFolders.add(customFolder);
-							}
-						}
-						List<File> allFiles = new ArrayList<>(1024);
-						FileUtils.listDir(thisframe, allFiles, srcFolders, config.getMaDepth(), dangerousFolders);
-						List<Redist> checkedFiles = new ArrayList<>(128);
-						List<Redist> checkedFolders = new ArrayList<>(128);
-						FileComparator tc = new FileComparator(
-								allFiles,
-								patternsCfg.getRedistFilePatternsAndDesc(patternsCfg.getEnableExperimentalPatterns()),
-								checkedFiles, true);
+						ScanProgress progress = new ScanProgress();
+						ScanTask task = new ScanTask(progress);
+						searchTask = task;
+						RedistSearch search = new RedistSearch(fSteamDir.exists() ? fSteamDir : null,
+								Arrays.asList(customFoldersListStrToFiles()), task, config.getScanParallelism());
+						String frameTitle = getTitle();
+						// the progress is sampled by the EDT at its own pace, the search only updates counters
+						Timer progressTimer = new Timer(PROGRESS_REFRESH_DELAY, evt -> showProgress(progress));
+						progressTimer.start();
 						try {
-							//Log.info("debug: FileComparator on files");
-							tc.start();
+							search.run();
 						} catch (InterruptedException ex) {
 							Log.error(ex);
+						} finally {
+							progressTimer.stop();
+							SwingUtilities.invokeLater(() -> setTitle(frameTitle));
 						}
-						tc = new FileComparator(
-								allFiles,
-								patternsCfg.getRedistFolderPatternsAndDesc(patternsCfg.getEnableExperimentalPatterns()),
-								checkedFolders, false);
-						try {
-							//Log.info("debug: FileComparator on folders");
-							tc.start();
-						} catch (InterruptedException ex) {
-							Log.error(ex);
-						}
-						uncheckedRedistPathList = uncheckedItems.getUncheckedItems();
-						checkedFiles.stream().forEach((redist) -> {
-							boolean checked = !uncheckedRedistPathList.contains(redist.getFile().getAbsolutePath());
-							model.addRow(new Object[]{
-								checked,
-								redist.getFile().getAbsolutePath(),
-								redist.getSize(),
-								" (" + nameFileUpCase + ") " + redist.getDescription()});
+						RedistTableModel.Rows rows = new RedistTableModel.Rows(
+								search.getFoundFiles().size() + search.getFoundFolders().size());
+						search.getFoundFiles().stream().forEach((redist) -> addRedistRow(rows, redist, false, redist.getSizeInBytes()));
+						search.getFoundFolders().stream().forEach((redist) -> addRedistRow(rows, redist, true, redist.getSizeInBytes()));
+						// a single table event for all the results, sent by the EDT
+						SwingUtilities.invokeAndWait(() -> {
+							model.addRows(rows);
+							showResultsCount();
 						});
-						checkedFolders.stream().forEach((redist) -> {
-							boolean check = !uncheckedRedistPathList.contains(redist.getFile().getAbsolutePath() + File.separatorChar);
-							model.addRow(new Object[]{
-								check,
-								redist.getFile().getAbsolutePath()
-										+ File.separatorChar,
-								redist.getSize(),
-								" (" + nameFolderUpCase + ") " + redist.getDescription()});
-						});
-						int nbFiles = checkedFiles.size();
-						int nbFolders = checkedFolders.size();
-						jPanelList.setBorder(BorderFactory.createTitledBorder(tblRedistLabelDefault + " "
-								+ nbFiles + " " + (nbFiles > 1 ? nameFiles : nameFile) + ", " + checkedFolders.size() + " "
-								+ (nbFolders > 1 ? nameFolders : nameFolder)));
-						recomputeTotalSizeMB();
-					}catch (InfinitiveLoopException | IOException ex) {
+						// a stopped search shows its partial results, but they don't replace the latest complete ones
+						if (!task.isCancelled()) {
+							memorizeLastResults();
+							if (config.getWatchFolders()) {
+								startFolderWatcher(search.getSearchedFolders(), search.getComparator());
+							}
+						}
+					}catch (InfinitiveLoopException | IOException | InterruptedException | InvocationTargetException ex) {
 							Log.error(ex);
 					} finally {
+						searchTask = null;
 						jButtonStopSearch.setVisible(false);
 						buttonReload.setText(btnReloadLabelInitial);
 						enableAllUI(true);
@@ -372,6 +546,8 @@ public class JFrameMain extends JFrame {
 
 	private void setTableModelUI() {
 		jTableRedistList.setModel(model);
+		// the checked size is kept by the model: refresh the remove button on every check box change
+		model.addTableModelListener(evt -> showCheckedSize());
 		RowSorter<TableModel> sorter = new TableRowSorter<>(model);
 		jTableRedistList.setRowSorter(sorter);
 		jTableRedistList.getColumnModel().getColumn(0).setPreferredWidth(50);
@@ -797,7 +973,6 @@ public class JFrameMain extends JFrame {
 
     private void jButtonReloadRedistListActionPerformed(ActionEvent evt) {//GEN-FIRST:event_jButtonReloadRedistListActionPerformed
 		searchRedistPackagesOnDisk(jButtonReloadRedistList);
-		CLOSING_APP = false;
     }//GEN-LAST:event_jButtonReloadRedistListActionPerformed
 
     private void jButtonRemoveRedistItemsFromDiskActionPerformed(ActionEvent evt) {//GEN-FIRST:event_jButtonRemoveRedistItemsFromDiskActionPerformed
@@ -806,13 +981,13 @@ public class JFrameMain extends JFrame {
 		List<File> filesDoDel = new ArrayList<>(8);
 		List<File> foldersToDel = new ArrayList<>(8);
 		for (int row = 0; row < model.getRowCount(); row++) {
-			boolean selected = (Boolean) model.getValueAt(row, 0);
-			if (selected) {
-				String path = (String) model.getValueAt(row, 1);
+			if (model.isChecked(row)) {
+				String path = model.getPath(row);
+				File file = new File(path);
 				if (path.endsWith(File.separator)) {
-					foldersToDel.add(new File(path));
+					foldersToDel.add(file);
 				} else {
-					filesDoDel.add(new File(path));
+					filesDoDel.add(file);
 				}
 			}
 		}
@@ -824,6 +999,7 @@ public class JFrameMain extends JFrame {
 			model = new RedistTableModel(translation);
 			setTableModelUI();
 			jPanelList.setBorder(BorderFactory.createTitledBorder(tblRedistLabelDefault));
+			memorizeLastResults();
 		} catch (IOException ex) {
 			Log.error(ex);
 		}
@@ -839,17 +1015,25 @@ public class JFrameMain extends JFrame {
 		}).start();
 	}
 
-	public static boolean isCLOSING_APP() {
-		return CLOSING_APP;
-	}
-
-	public static void setCLOSING_APP(boolean closingApp) {
-		JFrameMain.CLOSING_APP = closingApp;
+	/**
+	 * Stop the running search, if any. The scanner threads stop within a few file system calls, and the redistributable
+	 * packages found so far are listed.
+	 */
+	private void cancelSearch() {
+		ScanTask task = searchTask;
+		if (task != null) {
+			task.cancel();
+		}
 	}
 
     private void formWindowClosing(WindowEvent evt) {//GEN-FIRST:event_formWindowClosing
-		setCLOSING_APP(true);
+		boolean searching = jButtonStopSearch.isVisible();
+		cancelSearch();
+		stopFolderWatcher();
 		memorizeUncheckedItemsToConf();
+		if (!searching) {
+			memorizeLastResults();
+		}
 		Dimension windowDimension = this.getSize();
 		int height = windowDimension.height;
 		int width = windowDimension.width;
@@ -920,7 +1104,7 @@ public class JFrameMain extends JFrame {
     }//GEN-LAST:event_jButtonRemoveCustomFolderActionPerformed
 
     private void jButtonStopSearchActionPerformed(ActionEvent evt) {//GEN-FIRST:event_jButtonStopSearchActionPerformed
-		CLOSING_APP = true;
+		cancelSearch();
     }//GEN-LAST:event_jButtonStopSearchActionPerformed
 
     private void jButtonGithubActionPerformed(ActionEvent evt) {//GEN-FIRST:event_jButtonGithubActionPerformed
@@ -933,12 +1117,10 @@ public class JFrameMain extends JFrame {
 
     private void jTableRedistListMouseClicked(MouseEvent evt) {//GEN-FIRST:event_jTableRedistListMouseClicked
         memorizeCustomFoldersToConf();
-		recomputeTotalSizeMB();
     }//GEN-LAST:event_jTableRedistListMouseClicked
 
     private void jTableRedistListKeyPressed(KeyEvent evt) {//GEN-FIRST:event_jTableRedistListKeyPressed
         memorizeCustomFoldersToConf();
-		recomputeTotalSizeMB();
     }//GEN-LAST:event_jTableRedistListKeyPressed
 
   // Variables declaration - do not modify//GEN-BEGIN:variables
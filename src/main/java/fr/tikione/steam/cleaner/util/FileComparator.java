@@ -1,47 +1,121 @@
 package fr.tikione.steam.cleaner.util;
 
-import java.io.File;
-import java.util.Collections;
+import fr.tikione.steam.cleaner.util.scan.PathStore;
+import fr.tikione.steam.cleaner.util.scan.ScanEntry;
+import fr.tikione.steam.cleaner.util.scan.ScanProgress;
+
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * This class performs analysis on files.
+ * This class performs analysis on files. Files and folders are checked in a single pass: the type of each entry is
+ * already known from the scan, so every entry is only tested against the file patterns or the folder patterns.
  */
 public class FileComparator {
     
-    private final List<File> files;
+    private final RedistMatcher filePatterns;
     
-    private final List<Redist> redistsPatterns;
+    private final RedistMatcher folderPatterns;
     
     private final List<Redist> checkedFiles;
     
-    private final boolean onFiles;
+    private final List<Redist> checkedFolders;
+    
+    /** Files and folders already memorized, to skip duplicates in constant time. */
+    private final Set<Redist> known = new HashSet<>(256);
     
-    public FileComparator(List<File> files, List<Redist> redistsPatterns, List<Redist> checkedFiles, boolean onFiles) {
-        this.files = Collections.unmodifiableList(files);
-        this.redistsPatterns = Collections.unmodifiableList(redistsPatterns);
+    /** Receives the number of redistributable packages found, null if not needed. */
+    private ScanProgress progress = null;
+    
+    public FileComparator(List<Redist> filePatterns, List<Redist> folderPatterns, List<Redist> checkedFiles, List<Redist> checkedFolders) {
+        this.filePatterns = new RedistMatcher(filePatterns);
+        this.folderPatterns = new RedistMatcher(folderPatterns);
         this.checkedFiles = checkedFiles;
-        this.onFiles = onFiles;
+        this.checkedFolders = checkedFolders;
+    }
+    
+    /**
+     * Publish the number of redistributable packages found.
+     *
+     * @param progress receives the number of redistributable packages found, null if not needed.
+     */
+    public void setProgress(ScanProgress progress) {
+        this.progress = progress;
     }
     
-    public final void start()
+    /**
+     * Check all the files and folders found by a scan. Only the names are tested: the full path of an entry is rebuilt
+     * when it verifies one of the patterns.
+     *
+     * @param files the files and folders found by the scan.
+     * @throws InterruptedException if interrupted.
+     */
+    public final void start(PathStore files)
             throws InterruptedException {
-        int nbfiles = files.size();
-        //Log.info("debug: FileComparator >> number of files or folders to check: " + nbfiles);
-        if (nbfiles > 0) {
-            int startIdx = 0;
-            int endIdx = nbfiles - 1;
-            //Log.info("debug: FileComparator >> startIdx=" + startIdx + ", endIdx=" + endIdx);
-            for (int pos = startIdx; pos <= endIdx; pos++) {
-                Redist candidate = FileUtils.checkFile(files.get(pos), redistsPatterns);
-                if (candidate != null) {
-                    if (onFiles ? candidate.getFile().isFile() : candidate.getFile().isDirectory()) {
-                        if (!checkedFiles.contains(candidate)) {
-                            checkedFiles.add(candidate);
-                        }
+        //Log.info("debug: FileComparator >> number of files or folders to check: " + files.size());
+        for (int i = 0; i < files.size(); i++) {
+            RedistMatcher patterns = files.isBaseFolder(i) ? null
+                    : files.isDirectory(i) ? folderPatterns : files.isRegularFile(i) ? filePatterns : null;
+            if (patterns != null && patterns.match(files.getName(i)) != null) {
+                check(files.getEntry(i));
+            }
+        }
+    }
+    
+    /**
+     * Check a single file or folder, and memorize it if it verifies one of the patterns. May be called by several
+     * threads at the same time.
+     *
+     * @param file the file or folder to check.
+     */
+    public void check(ScanEntry file) {
+        Redist candidate = match(file);
+        if (candidate != null) {
+            List<Redist> checked = file.isDirectory() ? checkedFolders : checkedFiles;
+            synchronized (known) {
+                if (known.add(candidate)) {
+                    checked.add(candidate);
+                    if (progress != null) {
+                        progress.matchFound();
                     }
                 }
             }
         }
     }
+    
+    /**
+     * Check a single file or folder, without memorizing it. May be called by several threads at the same time.
+     *
+     * @param file the file or folder to check.
+     * @return the file or folder if it verifies one of the patterns, otherwise null.
+     */
+    public Redist match(ScanEntry file) {
+        if (file.isDirectory()) {
+            return FileUtils.checkFile(file, folderPatterns);
+        } else if (file.isRegularFile()) {
+            return FileUtils.checkFile(file, filePatterns);
+        } else {
+            return null;
+        }
+    }
+    
+    /**
+     * Indicates if a file name verifies one of the file patterns.
+     *
+     * @param fileName the file name to check.
+     * @return true if the file name verifies a pattern.
+     */
+    public boolean isRedistFileName(String fileName) {
+        return filePatterns.match(fileName) != null;
+    }
+    
+    /**
+     * Log how many file and folder names were rejected by the patterns prefilter.
+     */
+    public void logStatistics() {
+        Log.info("Redist patterns prefilter: rejected " + filePatterns.getPrefilterRejected() + " of "
+                + filePatterns.getPrefilterChecked() + " file names and " + folderPatterns.getPrefilterRejected() + " of "
+                + folderPatterns.getPrefilterChecked() + " folder names before running regular expressions");
+    }
 }
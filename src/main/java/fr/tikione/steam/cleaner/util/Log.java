@@ -1,5 +1,6 @@
 package fr.tikione.steam.cleaner.util;
 
+import fr.tikione.steam.cleaner.Main;
 import fr.tikione.steam.cleaner.util.conf.Config;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
@@ -30,6 +31,10 @@ public class Log {
             }
             conf.load(new FileReader(userLog4j));
             conf.setProperty("log4j.appender.messages.File", Config.getProfilePath() + "/log/steamcleaner_messages.log");
+            if (Main.ARG_HEADLESS) {
+                // The standard output is kept for the results of the command.
+                conf.setProperty("log4j.appender.console.Target", "System.err");
+            }
             PropertyConfigurator.configure(conf);
             messagesLogger = Logger.getLogger("fr.tikione.steam.cleaner.log.info");
         } catch (IOException ex) {
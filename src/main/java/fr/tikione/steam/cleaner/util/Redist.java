@@ -1,5 +1,6 @@
 package fr.tikione.steam.cleaner.util;
 
+import fr.tikione.steam.cleaner.util.scan.ScanEntry;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
@@ -11,15 +12,21 @@ import java.util.regex.Pattern;
  * a file or folder name pattern that represents a single or a set of redistributable packages.
  */
 @Getter
-@EqualsAndHashCode(exclude = {"description", "compiledPattern"})
+@EqualsAndHashCode(exclude = {"description", "compiledPattern", "literalName", "scanEntry"})
 public class Redist {
     
     private final String description;
     
     private Pattern compiledPattern;
     
+    /** The only name (in lower case) matched by the pattern if it is a pure anchored literal, otherwise null. */
+    private String literalName;
+    
     private File file;
     
+    /** The file or folder as found by the scan, null if unknown. */
+    private ScanEntry scanEntry;
+    
     /**
      * Define a file or folder name pattern that represents a single or a set of redistributable packages. Used to find
      * redistributable packages files and folders on the system storage.
@@ -28,8 +35,22 @@ public class Redist {
      * @param description a description of the redistributable package.
      */
     public Redist(String pattern, String description) {
+        this(pattern, description, null);
+    }
+    
+    /**
+     * Define a file or folder name pattern that represents a single or a set of redistributable packages. Used to find
+     * redistributable packages files and folders on the system storage.
+     *
+     * @param pattern the pattern (a regular expression) that represents the redistributable package.
+     * @param description a description of the redistributable package.
+     * @param literalName the only name (in lower case) matched by the pattern if it is a pure anchored literal, like
+     * <code>^dxwebsetup\.exe$</code>, otherwise null.
+     */
+    public Redist(String pattern, String description, String literalName) {
         this.description = description;
         this.compiledPattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
+        this.literalName = literalName;
     }
     
     /**
@@ -43,7 +64,33 @@ public class Redist {
         this.description = description;
     }
     
+    /**
+     * Define description of a redistributable package file or folder found by a scan of the system storage.
+     *
+     * @param scanEntry the redistributable package found by the scan.
+     * @param description a description of the redistributable package.
+     */
+    public Redist(ScanEntry scanEntry, String description) {
+        this(scanEntry.toFile(), description);
+        this.scanEntry = scanEntry;
+    }
+    
     public double getSize() {
+        double floatSize = getSizeInBytes();
+        floatSize /= (1024.0 * 1024.0);
+        return floatSize;
+    }
+    
+    /**
+     * Get the size of the redistributable package file or folder. The size computed by the scan is used if it is
+     * complete, otherwise the file or folder is measured.
+     *
+     * @return the size in bytes.
+     */
+    public long getSizeInBytes() {
+        if (scanEntry != null && scanEntry.isSizeComplete()) {
+            return scanEntry.getSize();
+        }
         long fsize;
         if (file.isFile()) {
             fsize = org.apache.commons.io.FileUtils.sizeOf(file);
@@ -52,8 +99,6 @@ public class Redist {
         } else {
             fsize = 0;
         }
-        double floatSize = fsize;
-        floatSize /= (1024.0 * 1024.0);
-        return floatSize;
+        return fsize;
     }
 }
@@ -0,0 +1,317 @@
+package fr.tikione.steam.cleaner.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Redistributable packages patterns compiled for fast matching:
+ * <ul>
+ * <li>patterns that are pure anchored literals (like <code>^dxwebsetup\.exe$</code>) are stored in a case-insensitive
+ * hash index,</li>
+ * <li>other patterns are compiled into a single regular expression (an alternation of all patterns), so each file name
+ * is tested by a single match operation,</li>
+ * <li>before running this regular expression, a prefilter rejects the names that can't match any of these patterns,
+ * because they don't start, end (like <code>.exe</code>) or contain the literal text each pattern requires.</li>
+ * </ul>
+ * The first pattern of the list that a file name verifies always wins, as when patterns are tested one by one.
+ */
+public class RedistMatcher {
+    
+    /** The patterns, in priority order. */
+    private final List<Redist> redists;
+    
+    /** Position of the pure anchored literal patterns, by matched name (in lower case). */
+    private final Map<String, Integer> literals = new HashMap<>(64);
+    
+    /** Position of the patterns that need the regular expressions engine. */
+    private final int[] regexIndexes;
+    
+    /** Alternation of the patterns that need the regular expressions engine, or null if they can't be combined. */
+    private final Pattern combined;
+    
+    /** Index of the capturing group that wraps each pattern in the alternation. */
+    private final int[] groups;
+    
+    /** Text (in lower case) that begins the names matched by each regular expression, or null to disable the prefilter. */
+    private final String[] requiredPrefixes;
+    
+    /** Text (in lower case) that ends the names matched by each regular expression, or null to disable the prefilter. */
+    private final String[] requiredSuffixes;
+    
+    /** Text (in lower case) found in the names matched by each regular expression, or null to disable the prefilter. */
+    private final String[] requiredInfixes;
+    
+    /** Number of names submitted to the prefilter. */
+    private final LongAdder prefilterChecked = new LongAdder();
+    
+    /** Number of names rejected by the prefilter. */
+    private final LongAdder prefilterRejected = new LongAdder();
+    
+    /**
+     * Compile some redistributable packages patterns.
+     *
+     * @param redists the patterns, in priority order.
+     */
+    public RedistMatcher(List<Redist> redists) {
+        this.redists = Collections.unmodifiableList(new ArrayList<>(redists));
+        List<Redist> regexRedists = new ArrayList<>(redists.size());
+        int[] indexes = new int[redists.size()];
+        for (int i = 0; i < redists.size(); i++) {
+            Redist redist = redists.get(i);
+            if (redist.getLiteralName() != null) {
+                literals.putIfAbsent(redist.getLiteralName(), i);
+            } else {
+                indexes[regexRedists.size()] = i;
+                regexRedists.add(redist);
+            }
+        }
+        this.regexIndexes = new int[regexRedists.size()];
+        System.arraycopy(indexes, 0, regexIndexes, 0, regexIndexes.length);
+        this.groups = new int[regexRedists.size()];
+        this.combined = combine(regexRedists, groups);
+        String[] prefixes = new String[regexRedists.size()];
+        String[] suffixes = new String[regexRedists.size()];
+        String[] infixes = new String[regexRedists.size()];
+        boolean prefilterEnabled = true;
+        for (int i = 0; i < regexRedists.size(); i++) {
+            String regex = regexRedists.get(i).getCompiledPattern().pattern();
+            prefixes[i] = RegexLiterals.requiredPrefix(regex);
+            suffixes[i] = RegexLiterals.requiredSuffix(regex);
+            infixes[i] = RegexLiterals.requiredInfix(regex);
+            if (prefixes[i].isEmpty() && suffixes[i].isEmpty() && infixes[i].isEmpty()) {
+                prefilterEnabled = false; // This pattern may match any name.
+            }
+        }
+        this.requiredPrefixes = prefilterEnabled ? prefixes : null;
+        this.requiredSuffixes = prefilterEnabled ? suffixes : null;
+        this.requiredInfixes = prefilterEnabled ? infixes : null;
+    }
+    
+    /**
+     * Build the alternation of some patterns: <code>(?:((?:p0))|((?:p1))|...)</code>, to be used with
+     * {@link Matcher#lookingAt()}. Patterns that are not anchored at the beginning of the name are prefixed with a lazy
+     * <code>.*?</code>, so each alternative matches if and only if its pattern is found somewhere in the name, and
+     * alternatives are tried in priority order. A pattern is wrapped in a non-capturing group, so that the prefix
+     * applies to all the branches of its own top-level alternation.
+     *
+     * @param redists the patterns.
+     * @param groups filled with the index of the capturing group that wraps each pattern.
+     * @return the alternation, or null if some patterns use back-references or can't be combined.
+     */
+    private static Pattern combine(List<Redist> redists, int[] groups) {
+        if (redists.isEmpty()) {
+            return null;
+        }
+        StringBuilder regex = new StringBuilder(redists.size() * 32);
+        regex.append("(?:");
+        int group = 1;
+        for (int i = 0; i < redists.size(); i++) {
+            Pattern pattern = redists.get(i).getCompiledPattern();
+            String source = pattern.pattern();
+            if (hasBackReference(source)) {
+                return null;
+            }
+            if (i > 0) {
+                regex.append('|');
+            }
+            regex.append('(');
+            if ((!source.startsWith("^") && !source.startsWith(".*")) || hasTopLevelAlternation(source)) {
+                regex.append("(?s:.*?)");
+            }
+            regex.append("(?:").append(source).append("))");
+            groups[i] = group;
+            group += 1 + pattern.matcher("").groupCount();
+        }
+        regex.append(')');
+        try {
+            return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+        } catch (PatternSyntaxException ex) {
+            Log.error("Cannot combine the redist patterns, they will be tested one by one", ex);
+            return null;
+        }
+    }
+    
+    /**
+     * Indicates if a regular expression is an alternation, i.e. contains a <code>|</code> outside of any group and
+     * character class: its first branch may be anchored while the others are not.
+     *
+     * @param regex the regular expression.
+     * @return true if the regular expression has several top-level branches.
+     */
+    private static boolean hasTopLevelAlternation(String regex) {
+        int depth = 0;
+        int classDepth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (regex.startsWith("Q", i + 1)) {
+                    int end = regex.indexOf("\\E", i + 2);
+                    if (end < 0) {
+                        return false;
+                    }
+                    i = end + 1;
+                } else {
+                    i++;
+                }
+            } else if (c == '[') {
+                // classes may be nested, like [a-z&&[^e]]
+                classDepth++;
+            } else if (classDepth > 0) {
+                if (c == ']') {
+                    classDepth--;
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Indicates if a regular expression refers to a capturing group, which would be renumbered in the alternation.
+     *
+     * @param regex the regular expression.
+     * @return true if the regular expression contains a back-reference.
+     */
+    private static boolean hasBackReference(String regex) {
+        for (int i = 0; i < regex.length() - 1; i++) {
+            if (regex.charAt(i) == '\\') {
+                char next = regex.charAt(i + 1);
+                if ((next >= '1' && next <= '9') || next == 'k') {
+                    return true;
+                }
+                i++;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Find the first pattern that a file or folder name verifies.
+     *
+     * @param fileName the file or folder name.
+     * @return the first pattern verified by the name, otherwise null.
+     */
+    public Redist match(String fileName) {
+        if (hasLineTerminator(fileName)) {
+            // A leading ".*" doesn't cross line terminators, and "$" matches before a final one: such names are
+            // checked by the original patterns.
+            return matchOneByOne(fileName);
+        }
+        String lowerCaseName = RegexLiterals.toLowerCase(fileName);
+        Integer literalHit = literals.get(lowerCaseName);
+        int found = literalHit == null ? Integer.MAX_VALUE : literalHit;
+        if (regexIndexes.length > 0 && regexIndexes[0] < found && mayMatchRegex(lowerCaseName)) {
+            found = Math.min(found, matchRegex(fileName));
+        }
+        return found == Integer.MAX_VALUE ? null : redists.get(found);
+    }
+    
+    /**
+     * Indicates if a name has the literal text required by at least one of the patterns that need the regular
+     * expressions engine.
+     *
+     * @param lowerCaseName the file or folder name, in lower case.
+     * @return false if the name can't match any of these patterns.
+     */
+    private boolean mayMatchRegex(String lowerCaseName) {
+        if (requiredPrefixes == null) {
+            return true;
+        }
+        prefilterChecked.increment();
+        for (int i = 0; i < requiredPrefixes.length; i++) {
+            if (lowerCaseName.startsWith(requiredPrefixes[i]) && lowerCaseName.endsWith(requiredSuffixes[i])
+                    && lowerCaseName.contains(requiredInfixes[i])) {
+                return true;
+            }
+        }
+        prefilterRejected.increment();
+        return false;
+    }
+    
+    /**
+     * Get the number of names submitted to the prefilter.
+     *
+     * @return the number of names checked.
+     */
+    public long getPrefilterChecked() {
+        return prefilterChecked.sum();
+    }
+    
+    /**
+     * Get the number of names rejected by the prefilter, without running the regular expressions engine.
+     *
+     * @return the number of names rejected.
+     */
+    public long getPrefilterRejected() {
+        return prefilterRejected.sum();
+    }
+    
+    /**
+     * Find the first pattern that needs the regular expressions engine and that a file or folder name verifies.
+     *
+     * @param fileName the file or folder name.
+     * @return the position of the first pattern verified by the name, otherwise {@link Integer#MAX_VALUE}.
+     */
+    private int matchRegex(String fileName) {
+        if (combined == null) {
+            for (int regexIndex : regexIndexes) {
+                if (redists.get(regexIndex).getCompiledPattern().matcher(fileName).find()) {
+                    return regexIndex;
+                }
+            }
+            return Integer.MAX_VALUE;
+        }
+        Matcher matcher = combined.matcher(fileName);
+        if (!matcher.lookingAt()) {
+            return Integer.MAX_VALUE;
+        }
+        int found = 0;
+        while (matcher.start(groups[found]) == -1) {
+            found++;
+        }
+        return regexIndexes[found];
+    }
+    
+    /**
+     * Indicates if a name contains a character that the regular expression dot doesn't match.
+     *
+     * @param name the name to check.
+     * @return true if the name contains a line terminator.
+     */
+    private static boolean hasLineTerminator(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Find the first pattern that a file or folder name verifies, by testing the patterns one by one.
+     *
+     * @param fileName the file or folder name.
+     * @return the first pattern verified by the name, otherwise null.
+     */
+    private Redist matchOneByOne(String fileName) {
+        for (Redist redist : redists) {
+            if (redist.getCompiledPattern().matcher(fileName).find()) {
+                return redist;
+            }
+        }
+        return null;
+    }
+}
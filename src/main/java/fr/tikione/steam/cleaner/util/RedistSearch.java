@@ -0,0 +1,237 @@
+package fr.tikione.steam.cleaner.util;
+
+import fr.tikione.ini.InfinitiveLoopException;
+import fr.tikione.steam.cleaner.util.conf.Config;
+import fr.tikione.steam.cleaner.util.conf.DangerousItems;
+import fr.tikione.steam.cleaner.util.conf.Patterns;
+import fr.tikione.steam.cleaner.util.scan.DirectoryScanner;
+import fr.tikione.steam.cleaner.util.scan.FolderExclusions;
+import fr.tikione.steam.cleaner.util.scan.PathStore;
+import fr.tikione.steam.cleaner.util.scan.ScanCache;
+import fr.tikione.steam.cleaner.util.scan.ScanEntry;
+import fr.tikione.steam.cleaner.util.scan.ScanPipeline;
+import fr.tikione.steam.cleaner.util.scan.ScanTask;
+import fr.tikione.steam.cleaner.util.scan.SteamLibraries;
+
+import java.io.CharConversionException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Search of redistributable packages in the Steam folder and the custom folders, with the search settings of the
+ * configuration. Doesn't depend on the user interface: used by the main window and by the command-line mode.
+ */
+public class RedistSearch {
+    
+    private final Config config;
+    
+    /** Searched folders, by search depth. */
+    private final Map<Integer, List<File>> searchedFolders = new LinkedHashMap<>(4);
+    
+    /** Installed games folders of the Steam libraries, searched as base folders. */
+    private final List<File> gameFolders = new ArrayList<>(0);
+    
+    /** The running search: cancellation request and progress. */
+    private final ScanTask task;
+    
+    /** Number of threads used to walk the folders. */
+    private final int parallelism;
+    
+    private final List<Redist> redistFilePatterns;
+    
+    private final List<Redist> foundFiles = new ArrayList<>(128);
+    
+    private final List<Redist> foundFolders = new ArrayList<>(128);
+    
+    private final FileComparator comparator;
+    
+    /**
+     * Prepare a search of redistributable packages.
+     *
+     * @param steamDir the Steam folder (or its <code>steamapps</code> folder), null if none.
+     * @param customFolders the custom folders to search.
+     * @param task the running search; cancelling it stops the search, and it receives the search progress.
+     * @param parallelism number of threads used to walk the folders; 1 (or less) means a sequential walk.
+     * @throws CharConversionException if an error occurs while reading the search settings.
+     * @throws InfinitiveLoopException if an error occurs while reading the search settings.
+     */
+    public RedistSearch(File steamDir, Collection<File> customFolders, ScanTask task, int parallelism)
+            throws CharConversionException, InfinitiveLoopException {
+        this.config = Config.getInstance();
+        this.task = task;
+        this.parallelism = parallelism;
+        Patterns patternsCfg = Patterns.getInstance();
+        redistFilePatterns = patternsCfg.getRedistFilePatternsAndDesc(patternsCfg.getEnableExperimentalPatterns());
+        comparator = new FileComparator(
+                redistFilePatterns,
+                patternsCfg.getRedistFolderPatternsAndDesc(patternsCfg.getEnableExperimentalPatterns()),
+                foundFiles, foundFolders);
+        comparator.setProgress(task.getProgress());
+        
+        FolderExclusions exclusions = new FolderExclusions(DangerousItems.getInstance().getDangerousFolders());
+        int maxDepth = config.getMaDepth();
+        List<File> srcFolders = new ArrayList<>(32);
+        SteamLibraries steamLibraries = null;
+        File steamappsDir = steamDir == null ? null : getSteamappsDir(steamDir);
+        if (steamappsDir != null && steamappsDir.exists()) {
+            if (steamappsDir.getName().equalsIgnoreCase("steamapps")) {
+                steamLibraries = new SteamLibraries(steamappsDir);
+            }
+            if (steamLibraries != null && steamLibraries.isResolved()) {
+                // only search the installed games folders (steamapps/common/<installdir>) of every Steam library
+                for (File gameFolder : steamLibraries.getGameFolders()) {
+                    if (!isExcluded(gameFolder, exclusions)) {
+                        gameFolders.add(gameFolder);
+                    }
+                }
+                searchedFolders.put(Math.max(0, maxDepth - 2), new ArrayList<>(gameFolders));
+            } else {
+                srcFolders.add(steamappsDir);
+            }
+        }
+        for (File customFolder : customFolders) {
+            if (steamLibraries != null && steamLibraries.isLibraryFolder(customFolder)) {
+                Log.info("Custom folder already searched as a Steam library: '" + customFolder + "'");
+            } else if (!srcFolders.contains(customFolder)) {
+                srcFolders.add(customFolder);
+            }
+        }
+        srcFolders.removeIf(folder -> isExcluded(folder, exclusions));
+        searchedFolders.computeIfAbsent(maxDepth, depth -> new ArrayList<>(0)).addAll(srcFolders);
+    }
+    
+    /**
+     * Indicates if a base folder matches one of the folders patterns to exclude. The scanner only checks the folders
+     * it finds, so the base folders are checked before being searched or watched.
+     *
+     * @param folder the base folder.
+     * @param exclusions the folders patterns to exclude.
+     * @return true if the folder has to be skipped.
+     */
+    private static boolean isExcluded(File folder, FolderExclusions exclusions) {
+        String absolutePath = folder.toPath().toAbsolutePath().toString();
+        if (exclusions.isExcluded(absolutePath, 0)) {
+            Log.info("Skipped hazardous place: '" + absolutePath + "'");
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Get the <code>steamapps</code> folder of a Steam folder, if any (fix
+     * https://github.com/jonathanlermitage/tikione-steam-cleaner/issues/27).
+     *
+     * @param steamDir the Steam folder.
+     * @return the <code>steamapps</code> folder if it exists, otherwise the Steam folder.
+     */
+    public static File getSteamappsDir(File steamDir) {
+        File[] steamapps = steamDir.listFiles((dir, name) -> name.equalsIgnoreCase("steamapps"));
+        if (steamapps != null && steamapps.length > 0) {
+            Log.info("steamapps folder found");
+            return new File(steamDir, "steamapps/");
+        }
+        return steamDir;
+    }
+    
+    /**
+     * Search the redistributable packages. If the search is cancelled, the scan stops early and the redistributable
+     * packages found in the files and folders walked so far are kept as partial results.
+     *
+     * @throws InterruptedException if interrupted while matching the files and folders found.
+     * @throws CharConversionException if an error occurs while reading the search settings.
+     * @throws InfinitiveLoopException if an error occurs while reading the search settings.
+     */
+    public void run()
+            throws InterruptedException, CharConversionException, InfinitiveLoopException {
+        List<Pattern> dangerousFolders = DangerousItems.getInstance().getDangerousFolders();
+        ScanCache scanCache = null;
+        if (config.getIncrementalScan()) {
+            // Only list again the folders modified since the previous scan.
+            String signature = redistFilePatterns.stream()
+                    .map(redist -> redist.getCompiledPattern().pattern())
+                    .collect(Collectors.joining("\n"));
+            scanCache = new ScanCache(new File(Config.getProfilePath(), "tikione-steam-cleaner_scan-cache.bin"),
+                    signature, comparator::isRedistFileName);
+            scanCache.load();
+        }
+        // a game folder is a base folder of the scan, but it may be a redistributable package itself, as it was when
+        // the whole steamapps folder was searched
+        for (File gameFolder : gameFolders) {
+            try {
+                Path path = gameFolder.toPath().toAbsolutePath();
+                comparator.check(new ScanEntry(path, Files.readAttributes(path, BasicFileAttributes.class),
+                        Files.isSymbolicLink(path)));
+            } catch (IOException ex) {
+                Log.info("Skipped path: '" + gameFolder + "', " + ex);
+            }
+        }
+        int streamingScanWorkers = config.getStreamingScanWorkers();
+        PathStore allFiles = new PathStore(1024);
+        for (Map.Entry<Integer, List<File>> folders : searchedFolders.entrySet()) {
+            if (task.isCancelled()) {
+                break;
+            }
+            DirectoryScanner scanner = new DirectoryScanner(folders.getKey(), dangerousFolders, task, parallelism);
+            if (scanCache != null) {
+                scanner.setCache(scanCache);
+            }
+            if (streamingScanWorkers > 0) {
+                // Match files and folders while they are found, without keeping the whole list in memory.
+                new ScanPipeline(scanner, streamingScanWorkers).run(folders.getValue(), comparator::check);
+            } else {
+                scanner.scan(folders.getValue(), allFiles);
+            }
+        }
+        comparator.start(allFiles);
+        comparator.logStatistics();
+        if (scanCache != null && !task.isCancelled()) {
+            scanCache.save();
+        }
+    }
+    
+    /**
+     * Get the searched folders.
+     *
+     * @return the searched folders, by search depth.
+     */
+    public Map<Integer, List<File>> getSearchedFolders() {
+        return searchedFolders;
+    }
+    
+    /**
+     * Get the redistributable packages files found.
+     *
+     * @return the files found.
+     */
+    public List<Redist> getFoundFiles() {
+        return foundFiles;
+    }
+    
+    /**
+     * Get the redistributable packages folders found.
+     *
+     * @return the folders found.
+     */
+    public List<Redist> getFoundFolders() {
+        return foundFolders;
+    }
+    
+    /**
+     * Get the comparator used to check the files and folders, to check the ones found after the search.
+     *
+     * @return the comparator.
+     */
+    public FileComparator getComparator() {
+        return comparator;
+    }
+}
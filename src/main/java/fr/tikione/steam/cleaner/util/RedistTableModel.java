@@ -1,29 +1,65 @@
 package fr.tikione.steam.cleaner.util;
 
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
- * A table model for redistributable packages found on the hard drive.
+ * A table model for redistributable packages found on the hard drive. Rows are kept in primitive arrays (sizes in
+ * bytes, check states, descriptions as indexes of a shared list), so a large list of results costs no object per cell.
+ * Cell values are only boxed when the table asks for them.
+ * <p>Like every Swing model, it must be modified on the event dispatch thread once it is shown in a table. Results
+ * found by a background thread are collected into {@link Rows}, then appended at once with {@link #addRows(Rows)}.
  */
 @SuppressWarnings("serial")
-public class RedistTableModel extends DefaultTableModel {
+public class RedistTableModel extends AbstractTableModel {
+    
+    /** Column of the check boxes. */
+    public static final int COL_CHECKED = 0;
+    
+    /** Column of the paths. */
+    public static final int COL_PATH = 1;
+    
+    /** Column of the sizes in MB. */
+    public static final int COL_SIZE = 2;
+    
+    /** Column of the descriptions. */
+    public static final int COL_DESCRIPTION = 3;
     
     /** Table columns type. */
-    @SuppressWarnings({"unchecked", "rawtypes"})
-    private final Class<Object>[] types = new Class[]{Boolean.class, String.class, Double.class, String.class};
+    private static final Class<?>[] TYPES = {Boolean.class, String.class, Double.class, String.class};
     
-    /** Indicates if table columns are editable. */
-    private final boolean[] canEdit = new boolean[]{true, false, false, false};
+    private final String[] columnNames;
     
-    @Override
-    public Class<Object> getColumnClass(int columnIndex) {
-        return types[columnIndex];
-    }
+    private int rowCount = 0;
     
-    @Override
-    public boolean isCellEditable(int rowIndex, int columnIndex) {
-        return canEdit[columnIndex];
-    }
+    /** Total size of the checked rows in bytes, kept up to date by every change. */
+    private long checkedBytes = 0;
+    
+    private boolean[] checked = new boolean[64];
+    
+    /** Absolute paths, ending with a file separator for folders. */
+    private String[] paths = new String[64];
+    
+    /** Sizes in bytes. */
+    private long[] sizes = new long[64];
+    
+    /** Index of the description of each row in the descriptions list. */
+    private int[] descriptionIds = new int[64];
+    
+    /** Distinct descriptions. */
+    private final List<String> descriptions = new ArrayList<>(64);
+    
+    /** Index of each description in the descriptions list. */
+    private final Map<String, Integer> descriptionsIds = new HashMap<>(64);
+    
+    /** Paths of the rows, to know if a redistributable package is already listed. */
+    private final Set<String> pathsSet = new HashSet<>(128);
     
     /**
      * Table model for redistributable packages found.
@@ -31,10 +67,271 @@ public class RedistTableModel extends DefaultTableModel {
      * @param translation messages translation handler.
      */
     public RedistTableModel(Translation translation) {
-        super(new Object[][]{}, new String[]{
+        columnNames = new String[]{
                 translation.getString("W_MAIN", "redistTable.col.title.select"),
                 translation.getString("W_MAIN", "redistTable.col.title.path"),
                 translation.getString("W_MAIN", "redistTable.col.title.size"),
-                translation.getString("W_MAIN", "redistTable.col.title.title")});
+                translation.getString("W_MAIN", "redistTable.col.title.title")};
+    }
+    
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+    
+    @Override
+    public String getColumnName(int columnIndex) {
+        return columnNames[columnIndex];
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return TYPES[columnIndex];
+    }
+    
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return columnIndex == COL_CHECKED;
+    }
+    
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        switch (columnIndex) {
+            case COL_CHECKED:
+                return checked[rowIndex];
+            case COL_PATH:
+                return paths[rowIndex];
+            case COL_SIZE:
+                return sizes[rowIndex] / (1024.0 * 1024.0);
+            default:
+                return descriptions.get(descriptionIds[rowIndex]);
+        }
+    }
+    
+    @Override
+    public void setValueAt(Object value, int rowIndex, int columnIndex) {
+        if (columnIndex == COL_CHECKED) {
+            setChecked(rowIndex, (Boolean) value);
+        }
+    }
+    
+    /**
+     * Indicates if a row is checked (to delete).
+     *
+     * @param row the row's index.
+     * @return true if the row is checked.
+     */
+    public boolean isChecked(int row) {
+        return checked[row];
+    }
+    
+    /**
+     * Check or uncheck a row.
+     *
+     * @param row the row's index.
+     * @param value true to check the row.
+     */
+    public void setChecked(int row, boolean value) {
+        if (checked[row] != value) {
+            checked[row] = value;
+            checkedBytes += value ? sizes[row] : -sizes[row];
+            fireTableCellUpdated(row, COL_CHECKED);
+        }
+    }
+    
+    /**
+     * Get the total size of the checked rows, without walking the rows.
+     *
+     * @return the size in bytes.
+     */
+    public long getCheckedBytes() {
+        return checkedBytes;
+    }
+    
+    /**
+     * Get the path of a row.
+     *
+     * @param row the row's index.
+     * @return the absolute path, ending with a file separator for a folder.
+     */
+    public String getPath(int row) {
+        return paths[row];
+    }
+    
+    /**
+     * Get the size of a row.
+     *
+     * @param row the row's index.
+     * @return the size in bytes.
+     */
+    public long getSizeInBytes(int row) {
+        return sizes[row];
+    }
+    
+    /**
+     * Set the size of a row.
+     *
+     * @param row the row's index.
+     * @param bytes the size in bytes.
+     */
+    public void setSizeInBytes(int row, long bytes) {
+        if (checked[row]) {
+            checkedBytes += bytes - sizes[row];
+        }
+        sizes[row] = bytes;
+        fireTableCellUpdated(row, COL_SIZE);
+    }
+    
+    /**
+     * Get the description of a row.
+     *
+     * @param row the row's index.
+     * @return the description.
+     */
+    public String getDescription(int row) {
+        return descriptions.get(descriptionIds[row]);
+    }
+    
+    /**
+     * Indicates if a path is listed.
+     *
+     * @param path the absolute path, ending with a file separator for a folder.
+     * @return true if a row has this path.
+     */
+    public boolean contains(String path) {
+        return pathsSet.contains(path);
+    }
+    
+    /**
+     * Add some rows at once: the table is notified once for the whole batch.
+     *
+     * @param rows the rows to add.
+     */
+    public void addRows(Rows rows) {
+        if (rows.count == 0) {
+            return;
+        }
+        ensureCapacity(rowCount + rows.count);
+        int firstRow = rowCount;
+        for (int i = 0; i < rows.count; i++) {
+            append(rows.checked[i], rows.paths[i], rows.sizes[i], rows.descriptions[i]);
+        }
+        fireTableRowsInserted(firstRow, rowCount - 1);
+    }
+    
+    /**
+     * Remove a row.
+     *
+     * @param row the row's index.
+     */
+    public void removeRow(int row) {
+        pathsSet.remove(paths[row]);
+        if (checked[row]) {
+            checkedBytes -= sizes[row];
+        }
+        int moved = rowCount - row - 1;
+        System.arraycopy(checked, row + 1, checked, row, moved);
+        System.arraycopy(paths, row + 1, paths, row, moved);
+        System.arraycopy(sizes, row + 1, sizes, row, moved);
+        System.arraycopy(descriptionIds, row + 1, descriptionIds, row, moved);
+        rowCount--;
+        paths[rowCount] = null;
+        fireTableRowsDeleted(row, row);
+    }
+    
+    private void append(boolean isChecked, String path, long bytes, String description) {
+        ensureCapacity(rowCount + 1);
+        Integer descriptionId = descriptionsIds.get(description);
+        if (descriptionId == null) {
+            descriptionId = descriptions.size();
+            descriptions.add(description);
+            descriptionsIds.put(description, descriptionId);
+        }
+        checked[rowCount] = isChecked;
+        paths[rowCount] = path;
+        sizes[rowCount] = bytes;
+        if (isChecked) {
+            checkedBytes += bytes;
+        }
+        descriptionIds[rowCount] = descriptionId;
+        pathsSet.add(path);
+        rowCount++;
+    }
+    
+    private void ensureCapacity(int capacity) {
+        if (capacity > paths.length) {
+            int newCapacity = Math.max(capacity, paths.length + (paths.length >> 1));
+            checked = Arrays.copyOf(checked, newCapacity);
+            paths = Arrays.copyOf(paths, newCapacity);
+            sizes = Arrays.copyOf(sizes, newCapacity);
+            descriptionIds = Arrays.copyOf(descriptionIds, newCapacity);
+        }
+    }
+    
+    /**
+     * Rows collected by a background thread, to be added to a table model at once. Not thread-safe: it is filled by a
+     * single thread, then handed to the event dispatch thread.
+     */
+    public static class Rows {
+        
+        private int count = 0;
+        
+        private boolean[] checked;
+        
+        private String[] paths;
+        
+        private long[] sizes;
+        
+        private String[] descriptions;
+        
+        /**
+         * Create an empty batch of rows.
+         *
+         * @param capacity the expected number of rows.
+         */
+        public Rows(int capacity) {
+            capacity = Math.max(16, capacity);
+            checked = new boolean[capacity];
+            paths = new String[capacity];
+            sizes = new long[capacity];
+            descriptions = new String[capacity];
+        }
+        
+        /**
+         * Add a row to the batch.
+         *
+         * @param isChecked indicates if the row is checked.
+         * @param path the absolute path, ending with a file separator for a folder.
+         * @param bytes the size in bytes.
+         * @param description the description.
+         */
+        public void add(boolean isChecked, String path, long bytes, String description) {
+            if (count == paths.length) {
+                int capacity = count + (count >> 1);
+                checked = Arrays.copyOf(checked, capacity);
+                paths = Arrays.copyOf(paths, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                descriptions = Arrays.copyOf(descriptions, capacity);
+            }
+            checked[count] = isChecked;
+            paths[count] = path;
+            sizes[count] = bytes;
+            descriptions[count] = description;
+            count++;
+        }
+        
+        /**
+         * Get the number of rows in the batch.
+         *
+         * @return the number of rows.
+         */
+        public int size() {
+            return count;
+        }
     }
 }
@@ -0,0 +1,332 @@
+package fr.tikione.steam.cleaner.util;
+
+/**
+ * Literal text analysis of regular expressions. Used to handle simple redistributable packages patterns without the
+ * regular expressions engine, and to reject names that can't match before running it.
+ * <p>Redist patterns are case-insensitive for US-ASCII characters only (like {@link java.util.regex.Pattern#CASE_INSENSITIVE}):
+ * literals are compared in lower case, converting US-ASCII characters only.
+ * <p>The analysis is conservative: any construct that is not understood (character classes, quantifiers, non-capturing
+ * groups, alternations...) is considered as matching anything.
+ */
+public class RegexLiterals {
+    
+    /** Marks an element of a regular expression that is not a literal character. */
+    private static final char ANY = '\uFFFF';
+    
+    /** Suppresses default constructor, ensuring non-instantiability. */
+    private RegexLiterals() {
+    }
+    
+    /**
+     * Get the name matched by a pattern made of a single anchored literal, like <code>^dxwebsetup\.exe$</code>.
+     *
+     * @param regex the regular expression.
+     * @return the name matched by the pattern, in lower case, or null if the pattern is not a pure anchored literal
+     * made of US-ASCII characters.
+     */
+    public static String anchoredLiteral(String regex) {
+        Elements elements = parse(regex);
+        if (elements == null || !elements.startAnchored || !elements.endAnchored) {
+            return null;
+        }
+        String literal = elements.chars.toString();
+        for (int i = 0; i < literal.length(); i++) {
+            if (literal.charAt(i) > 127) {
+                return null;
+            }
+        }
+        return literal;
+    }
+    
+    /**
+     * Get the text that begins every name matched by a pattern, like <code>vcredist</code> for
+     * <code>^(vcredist){1}.*(\.exe)$</code>.
+     *
+     * @param regex the regular expression.
+     * @return the text that begins every matched name, in lower case (empty if the pattern doesn't require one).
+     */
+    public static String requiredPrefix(String regex) {
+        Elements elements = parse(regex);
+        if (elements == null || !elements.startAnchored) {
+            return "";
+        }
+        int end = elements.chars.indexOf(String.valueOf(ANY));
+        return end < 0 ? elements.chars.toString() : elements.chars.substring(0, end);
+    }
+    
+    /**
+     * Get the text that ends every name matched by a pattern, like <code>.exe</code> for
+     * <code>^(vcredist){1}.*(\.exe)$</code>.
+     *
+     * @param regex the regular expression.
+     * @return the text that ends every matched name, in lower case (empty if the pattern doesn't require one).
+     */
+    public static String requiredSuffix(String regex) {
+        Elements elements = parse(regex);
+        if (elements == null || !elements.endAnchored) {
+            return "";
+        }
+        int start = elements.chars.lastIndexOf(String.valueOf(ANY));
+        return elements.chars.substring(start + 1);
+    }
+    
+    /**
+     * Get the longest text found in every name matched by a pattern, like <code>_redist</code> for
+     * <code>.*_redist(s)?$</code>.
+     *
+     * @param regex the regular expression.
+     * @return the longest text found in every matched name, in lower case (empty if the pattern doesn't require one).
+     */
+    public static String requiredInfix(String regex) {
+        Elements elements = parse(regex);
+        if (elements == null) {
+            return "";
+        }
+        String longest = "";
+        for (String literal : elements.chars.toString().split(String.valueOf(ANY))) {
+            if (literal.length() > longest.length()) {
+                longest = literal;
+            }
+        }
+        return longest;
+    }
+    
+    /**
+     * Split a regular expression into literal characters and other elements.
+     *
+     * @param regex the regular expression.
+     * @return the elements of the regular expression, or null if it contains a top-level alternation.
+     */
+    private static Elements parse(String regex) {
+        Elements elements = new Elements();
+        int start = 0;
+        int end = regex.length();
+        if (end > 0 && regex.charAt(0) == '^') {
+            elements.startAnchored = true;
+            start = 1;
+        }
+        if (end > start && regex.charAt(end - 1) == '$' && !isEscaped(regex, end - 1)) {
+            elements.endAnchored = true;
+            end--;
+        }
+        return parse(regex, start, end, elements.chars) ? elements : null;
+    }
+    
+    /**
+     * Split a part of a regular expression into literal characters and other elements.
+     *
+     * @param regex the regular expression.
+     * @param start the beginning of the part to split.
+     * @param end the end (excluded) of the part to split.
+     * @param chars receives the literal characters (in lower case), and {@link #ANY} for other elements.
+     * @return false if the part contains an alternation.
+     */
+    private static boolean parse(String regex, int start, int end, StringBuilder chars) {
+        int pos = start;
+        while (pos < end) {
+            char c = regex.charAt(pos);
+            int next;
+            String element;
+            if (c == '|') {
+                return false;
+            } else if (c == '\\') {
+                next = skipEscape(regex, pos, end);
+                char escaped = pos + 1 < end ? regex.charAt(pos + 1) : ANY;
+                element = next == pos + 2 && !Character.isLetterOrDigit(escaped) ? String.valueOf(toLowerCase(escaped)) : null;
+            } else if (c == '[') {
+                next = skipClass(regex, pos, end);
+                element = null;
+            } else if (c == '(') {
+                // A capturing or non-capturing group matched once is a simple sequence of elements.
+                next = skipGroup(regex, pos, end);
+                element = null;
+                if (next <= end) {
+                    int groupStart = regex.startsWith("(?:", pos) ? pos + 3 : regex.charAt(pos + 1) == '?' ? -1 : pos + 1;
+                    StringBuilder groupChars = new StringBuilder(next - pos);
+                    if (groupStart > 0 && parse(regex, groupStart, next - 1, groupChars)) {
+                        element = groupChars.toString();
+                    }
+                }
+            } else if ("^$.)]{}?*+".indexOf(c) >= 0) {
+                next = pos + 1;
+                element = null;
+            } else {
+                next = pos + 1;
+                element = String.valueOf(toLowerCase(c));
+            }
+            if (next > end) {
+                chars.append(ANY); // Unbalanced expression: let the regular expressions engine report it.
+                return true;
+            }
+            int afterQuantifier = skipQuantifier(regex, next, end);
+            if (afterQuantifier > next && !regex.substring(next, afterQuantifier).matches("\\{1\\}[?+]?")) {
+                element = null;
+            }
+            chars.append(element == null ? String.valueOf(ANY) : element);
+            pos = afterQuantifier;
+        }
+        return true;
+    }
+    
+    private static boolean isEscaped(String regex, int pos) {
+        int backslashes = 0;
+        for (int i = pos - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 == 1;
+    }
+    
+    private static int skipEscape(String regex, int pos, int end) {
+        if (pos + 1 >= end) {
+            return end + 1;
+        }
+        char c = regex.charAt(pos + 1);
+        if (c == 'Q') {
+            int quoteEnd = regex.indexOf("\\E", pos + 2);
+            return quoteEnd < 0 || quoteEnd + 2 > end ? end : quoteEnd + 2;
+        }
+        if ((c == 'p' || c == 'P' || c == 'x' || c == 'k' || c == 'N') && pos + 2 < end && "{<".indexOf(regex.charAt(pos + 2)) >= 0) {
+            int close = regex.indexOf(regex.charAt(pos + 2) == '{' ? '}' : '>', pos + 3);
+            return close < 0 || close >= end ? end + 1 : close + 1;
+        }
+        // Escapes made of several characters: hexadecimal and octal values, control characters, one-letter classes.
+        int length;
+        if (c == 'x') {
+            length = 4;
+        } else if (c == 'u') {
+            length = 6;
+        } else if (c == 'c' || c == 'p' || c == 'P') {
+            length = 3;
+        } else if (c == '0') {
+            int maxDigits = pos + 2 < end && regex.charAt(pos + 2) >= '0' && regex.charAt(pos + 2) <= '3' ? 3 : 2;
+            length = 2;
+            while (length < 2 + maxDigits && pos + length < end && regex.charAt(pos + length) >= '0'
+                    && regex.charAt(pos + length) <= '7') {
+                length++;
+            }
+        } else {
+            length = 2;
+        }
+        return pos + length > end ? end + 1 : pos + length;
+    }
+    
+    private static int skipClass(String regex, int pos, int end) {
+        int depth = 0;
+        int i = pos;
+        while (i < end) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+                if (i + 1 < end && regex.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < end && regex.charAt(i + 1) == ']') {
+                    i++; // A leading ']' is a literal in a character class.
+                }
+            } else if (c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return end + 1;
+    }
+    
+    private static int skipGroup(String regex, int pos, int end) {
+        int depth = 0;
+        int i = pos;
+        while (i < end) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i = skipEscape(regex, i, end);
+                continue;
+            }
+            if (c == '[') {
+                i = skipClass(regex, i, end);
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return end + 1;
+    }
+    
+    private static int skipQuantifier(String regex, int pos, int end) {
+        if (pos >= end) {
+            return pos;
+        }
+        int i = pos;
+        char c = regex.charAt(i);
+        if (c == '?' || c == '*' || c == '+') {
+            i++;
+        } else if (c == '{') {
+            int close = regex.indexOf('}', i);
+            if (close < 0 || close >= end) {
+                return pos;
+            }
+            i = close + 1;
+        } else {
+            return pos;
+        }
+        if (i < end && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+            i++;
+        }
+        return i;
+    }
+    
+    /**
+     * Convert a string to lower case, for US-ASCII characters only.
+     *
+     * @param str the string to convert.
+     * @return the converted string.
+     */
+    public static String toLowerCase(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                char[] chars = str.toCharArray();
+                for (int j = i; j < chars.length; j++) {
+                    chars[j] = toLowerCase(chars[j]);
+                }
+                return new String(chars);
+            }
+        }
+        return str;
+    }
+    
+    /**
+     * Convert a character to lower case, for US-ASCII characters only.
+     *
+     * @param c the character to convert.
+     * @return the converted character.
+     */
+    public static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+    
+    /** Elements of a regular expression. */
+    private static class Elements {
+        
+        /** Indicates if the expression begins with <code>^</code>. */
+        private boolean startAnchored;
+        
+        /** Indicates if the expression ends with <code>$</code>. */
+        private boolean endAnchored;
+        
+        /** The literal characters, and {@link #ANY} for other elements. */
+        private final StringBuilder chars = new StringBuilder(32);
+    }
+}
@@ -0,0 +1,79 @@
+package fr.tikione.steam.cleaner.util;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A log shown in a text area, written by any thread. Messages are queued, then appended in batches on the event
+ * dispatch thread: a single flush is scheduled for all the messages written before it runs, and each flush is one
+ * insertion at the end of the document. Only the last lines are kept, so a long log costs the same as a short one.
+ */
+public class TextAreaLog {
+    
+    /** The text area showing the log. */
+    private final JTextArea textArea;
+    
+    /** Maximum number of lines kept in the text area. */
+    private final int maxLines;
+    
+    /** Messages written but not appended yet. */
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    
+    /** Indicates if a flush is scheduled on the event dispatch thread. */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    
+    /**
+     * Create a log shown in a text area.
+     *
+     * @param textArea the text area showing the log. Its current text is kept.
+     * @param maxLines maximum number of lines kept in the text area: the oldest lines are removed first.
+     */
+    public TextAreaLog(JTextArea textArea, int maxLines) {
+        this.textArea = textArea;
+        this.maxLines = Math.max(1, maxLines);
+    }
+    
+    /**
+     * Write a message at the end of the log. It is shown with the next batch.
+     *
+     * @param text the message, with its own line separators.
+     */
+    public void append(String text) {
+        pending.add(text);
+        if (flushScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::flush);
+        }
+    }
+    
+    /**
+     * Append the pending messages to the text area, then remove the oldest lines. Runs on the event dispatch thread.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        StringBuilder batch = new StringBuilder(4096);
+        String text;
+        while ((text = pending.poll()) != null) {
+            batch.append(text);
+        }
+        if (batch.length() == 0) {
+            return;
+        }
+        textArea.append(batch.toString());
+        Document doc = textArea.getDocument();
+        Element root = doc.getDefaultRootElement();
+        int excessLines = root.getElementCount() - maxLines;
+        if (excessLines > 0) {
+            try {
+                doc.remove(0, root.getElement(excessLines - 1).getEndOffset());
+            } catch (BadLocationException ex) {
+                Log.error(ex);
+            }
+        }
+    }
+}
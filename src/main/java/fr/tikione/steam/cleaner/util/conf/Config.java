@@ -31,6 +31,24 @@ public class Config {
     /** INI configuration file key : max depth in folders recursive search. */
     private static final String CONFIG_STEAM_FOLDERS__MAX_DEPTH = "maxDepth";
     
+    /** INI configuration file key : number of threads used to walk folders (1 for a sequential walk). */
+    private static final String CONFIG_STEAM_FOLDERS__SCAN_PARALLELISM = "scanParallelism";
+    
+    /** INI configuration file key : number of matcher threads of the streaming scan (0 to disable streaming). */
+    private static final String CONFIG_STEAM_FOLDERS__STREAMING_SCAN_WORKERS = "streamingScanWorkers";
+    
+    /** INI configuration file key : reuse the content of unchanged folders from the previous scan. */
+    private static final String CONFIG_STEAM_FOLDERS__INCREMENTAL_SCAN = "incrementalScan";
+    
+    /** INI configuration file key : watch the scanned folders and update the results as they change. */
+    private static final String CONFIG_STEAM_FOLDERS__WATCH_FOLDERS = "watchFolders";
+    
+    /** INI configuration file key : maximum number of watched folders. */
+    private static final String CONFIG_STEAM_FOLDERS__MAX_WATCHED_FOLDERS = "maxWatchedFolders";
+    
+    /** INI configuration file key : delay between two rescans (in minutes) when some folders can't be watched. */
+    private static final String CONFIG_STEAM_FOLDERS__WATCH_RESCAN_PERIOD = "watchRescanPeriod";
+    
     /** INI configuration file section : UI settings. */
     private static final String CONFIG_MAIN_WINDOW_UI = "MAIN_WINDOW_UI";
     
@@ -58,6 +76,18 @@ public class Config {
     /** INI configuration file key : list of remote redist definition files. */
     private static final String CONFIG_MISC__REMOTE_DEFINITION_FILES = "remoteDefinitionFiles";
     
+    /** INI configuration file key : number of threads deleting files at the same time on each drive. */
+    private static final String CONFIG_MISC__DELETION_WORKERS_PER_DEVICE = "deletionWorkersPerDevice";
+    
+    /** INI configuration file key : move the redistributable packages to a quarantine instead of deleting them. */
+    private static final String CONFIG_MISC__USE_QUARANTINE = "useQuarantine";
+    
+    /** INI configuration file key : number of hours the redistributable packages stay in quarantine before purge. */
+    private static final String CONFIG_MISC__QUARANTINE_RETENTION_HOURS = "quarantineRetentionHours";
+    
+    /** INI configuration file key : number of threads hashing files at the same time to find duplicates. */
+    private static final String CONFIG_MISC__DEDUP_HASH_WORKERS = "dedupHashWorkers";
+    
     /** Singleton handler. */
     private static final Config config;
     
@@ -173,6 +203,30 @@ public class Config {
         return ini.getKeyValue(DEFAULT_REMOTE_DEFINITION_FILE, CONFIG_MISC, CONFIG_MISC__REMOTE_DEFINITION_FILES);
     }
     
+    public int getDeletionWorkersPerDevice()
+            throws CharConversionException,
+            InfinitiveLoopException {
+        return Integer.parseInt(ini.getKeyValue("2", CONFIG_MISC, CONFIG_MISC__DELETION_WORKERS_PER_DEVICE));
+    }
+    
+    public boolean getUseQuarantine()
+            throws CharConversionException,
+            InfinitiveLoopException {
+        return Boolean.parseBoolean(ini.getKeyValue("false", CONFIG_MISC, CONFIG_MISC__USE_QUARANTINE));
+    }
+    
+    public int getQuarantineRetentionHours()
+            throws CharConversionException,
+            InfinitiveLoopException {
+        return Integer.parseInt(ini.getKeyValue("24", CONFIG_MISC, CONFIG_MISC__QUARANTINE_RETENTION_HOURS));
+    }
+    
+    public int getDedupHashWorkers()
+            throws CharConversionException,
+            InfinitiveLoopException {
+        return Integer.parseInt(ini.getKeyValue("4", CONFIG_MISC, CONFIG_MISC__DEDUP_HASH_WORKERS));
+    }
+    
     public String getLatestSteamFolder()
             throws CharConversionException,
             InfinitiveLoopException {
@@ -185,6 +239,42 @@ public class Config {
         return Integer.parseInt(ini.getKeyValue("", CONFIG_STEAM_FOLDERS, CONFIG_STEAM_FOLDERS__MAX_DEPTH));
     }
     
+    public int getScanParallelism()
+            throws CharConversionException,
+            InfinitiveLoopException {
+        return Integer.parseInt(ini.getKeyValue("1", CONFIG_STEAM_FOLDERS, CONFIG_STEAM_FOLDERS__SCAN_PARALLELISM));
+    }
+    
+    public int getStreamingScanWorkers()
+            throws CharConversionException,
+            InfinitiveLoopException {
+        return Integer.parseInt(ini.getKeyValue("0", CONFIG_STEAM_FOLDERS, CONFIG_STEAM_FOLDERS__STREAMING_SCAN_WORKERS));
+    }
+    
+    public boolean getIncrementalScan()
+            throws CharConversionException,
+            InfinitiveLoopException {
+        return Boolean.parseBoolean(ini.getKeyValue("false", CONFIG_STEAM_FOLDERS, CONFIG_STEAM_FOLDERS__INCREMENTAL_SCAN));
+    }
+    
+    public boolean getWatchFolders()
+            throws CharConversionException,
+            InfinitiveLoopException {
+        return Boolean.parseBoolean(ini.getKeyValue("false", CONFIG_STEAM_FOLDERS, CONFIG_STEAM_FOLDERS__WATCH_FOLDERS));
+    }
+    
+    public int getMaxWatchedFolders()
+            throws CharConversionException,
+            InfinitiveLoopException {
+        return Integer.parseInt(ini.getKeyValue("4096", CONFIG_STEAM_FOLDERS, CONFIG_STEAM_FOLDERS__MAX_WATCHED_FOLDERS));
+    }
+    
+    public int getWatchRescanPeriod()
+            throws CharConversionException,
+            InfinitiveLoopException {
+        return Integer.parseInt(ini.getKeyValue("15", CONFIG_STEAM_FOLDERS, CONFIG_STEAM_FOLDERS__WATCH_RESCAN_PERIOD));
+    }
+    
     public int getUILatestWidth()
             throws CharConversionException,
             InfinitiveLoopException {
@@ -0,0 +1,119 @@
+package fr.tikione.steam.cleaner.util.conf;
+
+import fr.tikione.steam.cleaner.util.Log;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Redistributable packages found by the latest search, as shown in the main table. Used to fill the table at startup,
+ * before any new search.
+ */
+public class LastResults {
+    
+    /** Version of the results file format. */
+    private static final int FORMAT_VERSION = 1;
+    
+    /** File to use for results loading and saving. */
+    private final File resultsFile;
+    
+    /**
+     * Locate the latest search results file.
+     */
+    public LastResults() {
+        File userprofile = new File(Config.getProfilePath());
+        //noinspection ResultOfMethodCallIgnored
+        userprofile.mkdirs();
+        resultsFile = new File(userprofile.getAbsolutePath() + "/tikione-steam-cleaner_last-results.bin");
+    }
+    
+    /**
+     * Load the latest search results.
+     *
+     * @return the redistributable packages found by the latest search, or an empty list if there is no results file or
+     * if it can't be read.
+     */
+    public List<Item> load() {
+        if (!resultsFile.exists()) {
+            return Collections.emptyList();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(resultsFile)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return Collections.emptyList();
+            }
+            int nbItems = in.readInt();
+            List<Item> items = new ArrayList<>(nbItems);
+            for (int i = 0; i < nbItems; i++) {
+                items.add(new Item(in.readUTF(), in.readLong(), in.readUTF(), in.readBoolean()));
+            }
+            return items;
+        } catch (IOException ex) {
+            Log.error(ex);
+            return Collections.emptyList();
+        }
+    }
+    
+    /**
+     * Save the search results.
+     *
+     * @param items the redistributable packages found.
+     * @throws IOException if an I/O error occurs while writing the file.
+     */
+    public void save(List<Item> items)
+            throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(resultsFile)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(items.size());
+            for (Item item : items) {
+                out.writeUTF(item.path);
+                out.writeLong(item.size);
+                out.writeUTF(item.description);
+                out.writeBoolean(item.checked);
+            }
+        }
+    }
+    
+    /**
+     * A redistributable package found by a search.
+     */
+    @Getter
+    public static class Item {
+        
+        /** Absolute path, ending with a file separator for a folder. */
+        private final String path;
+        
+        /** Size in bytes. */
+        private final long size;
+        
+        /** Description, as shown in the main table. */
+        private final String description;
+        
+        /** Indicates if the item is checked for deletion. */
+        private final boolean checked;
+        
+        /**
+         * Describe a redistributable package found by a search.
+         *
+         * @param path the absolute path, ending with a file separator for a folder.
+         * @param size the size in bytes.
+         * @param description the description, as shown in the main table.
+         * @param checked indicates if the item is checked for deletion.
+         */
+        public Item(String path, long size, String description, boolean checked) {
+            this.path = path;
+            this.size = size;
+            this.description = description;
+            this.checked = checked;
+        }
+    }
+}
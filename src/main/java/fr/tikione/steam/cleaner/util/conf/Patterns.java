@@ -5,6 +5,7 @@ import fr.tikione.ini.Ini;
 import fr.tikione.steam.cleaner.Main;
 import fr.tikione.steam.cleaner.util.Log;
 import fr.tikione.steam.cleaner.util.Redist;
+import fr.tikione.steam.cleaner.util.RegexLiterals;
 
 import java.io.CharConversionException;
 import java.io.File;
@@ -163,7 +164,8 @@ public class Patterns {
                     redistName = redist;
                 } else {
                     redtsiDescription = redist;
-                    redistList.add(new Redist(redistName, redtsiDescription));
+                    // Pure anchored literals are matched with a hash lookup instead of the regular expressions engine.
+                    redistList.add(new Redist(redistName, redtsiDescription, RegexLiterals.anchoredLiteral(redistName)));
                 }
                 FileDescToggle ^= true;
             }
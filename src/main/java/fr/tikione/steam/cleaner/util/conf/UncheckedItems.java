@@ -4,16 +4,15 @@ import fr.tikione.ini.InfinitiveLoopException;
 import fr.tikione.ini.Ini;
 import fr.tikione.steam.cleaner.Main;
 
-import java.io.CharConversionException;
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.List;
-import java.util.regex.Matcher;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
- * List of unchecked items in the redistributable packages list.
+ * Unchecked items in the redistributable packages list. The items are kept in a set, so checking an item costs the
+ * same whatever the number of memorized items; the file is only written when the set changed.
  */
 public class UncheckedItems {
     
@@ -29,6 +28,10 @@ public class UncheckedItems {
     /** Configuration object. */
     private final Ini ini;
     
+    /** The unchecked items, in the order they were memorized. */
+    private final Set<String> items = new LinkedHashSet<>(64);
+    
+    /** Indicates if the items changed since they were loaded or saved. */
     private boolean updated = false;
     
     /**
@@ -36,9 +39,10 @@ public class UncheckedItems {
      *
      * @throws IOException if an I/O error occurs while retrieving the internal default configuration file, or while writing this default
      *         configuration file.
+     * @throws InfinitiveLoopException if an error occurs while reading the list (file parsing error).
      */
     public UncheckedItems()
-            throws IOException {
+            throws IOException, InfinitiveLoopException {
         File backupConfigFile = new File("conf/backup/tikione-steam-cleaner_unchecked-items.ini");
         File userprofile = new File(Config.getProfilePath());
         //noinspection ResultOfMethodCallIgnored
@@ -51,66 +55,60 @@ public class UncheckedItems {
         ini.getConfig().enableParseLineConcat(false);
         ini.getConfig().enableReadUnicodeEscConv(false);
         ini.load(configFile, Main.CONF_ENCODING);
+        String itemTable = ini.getKeyValue(null, CONFIG_UNCHECKED_REDIST_ITEMS, CONFIG_UNCHECKED_REDIST_ITEMS__ITEM_LIST);
+        if (itemTable != null) {
+            for (String item : itemTable.split("\"", 0)) {
+                if (!item.isEmpty()) {
+                    items.add(item);
+                }
+            }
+        }
     }
     
     /**
-     * Saves the unchecked items list into a file.
+     * Saves the unchecked items list into a file, if it changed since it was loaded or saved.
      *
      * @throws IOException if an I/O error occurs while writing the file.
      */
-    public void save()
+    public synchronized void save()
             throws IOException {
         if (updated || !configFile.exists()) {
+            ini.setKeyValue(CONFIG_UNCHECKED_REDIST_ITEMS, CONFIG_UNCHECKED_REDIST_ITEMS__ITEM_LIST, String.join("\"", items));
             ini.store(configFile, Main.CONF_ENCODING, Main.CONF_NEWLINE);
+            updated = false;
         }
     }
     
     /**
-     * Get the list of unchecked items memorized from the file.
+     * Get the unchecked items.
      *
-     * @return the list of unchecked items.
-     * @throws CharConversionException if an error occurs while retrieving the list from the file (invalid characters).
-     * @throws InfinitiveLoopException if an error occurs while retrieving the list from the file (file parsing error).
+     * @return the paths of the unchecked items (folders ending with a file separator), read-only.
      */
-    @SuppressWarnings("unchecked")
-    public List<String> getUncheckedItems()
-            throws CharConversionException,
-            InfinitiveLoopException {
-        String itemTable = ini.getKeyValue(null, CONFIG_UNCHECKED_REDIST_ITEMS, CONFIG_UNCHECKED_REDIST_ITEMS__ITEM_LIST);
-        List<String> res;
-        if (itemTable == null) {
-            res = Collections.EMPTY_LIST;
-        } else {
-            res = Arrays.asList(itemTable.split(Matcher.quoteReplacement("\""), 0));
-        }
-        return res;
+    public synchronized Set<String> getUncheckedItems() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(items));
     }
     
     /**
-     * Set the list of unchecked items to memorize.
+     * Indicates if an item is unchecked.
      *
-     * @param items the items to memorize.
-     * @throws CharConversionException if an error occurs while setting the list from the file (invalid characters).
-     * @throws InfinitiveLoopException if an error occurs while setting the list from the file (file parsing error).
+     * @param item the item's path (folders ending with a file separator).
+     * @return true if the item is unchecked.
      */
-    @SuppressWarnings("Duplicates")
-    public void setUncheckedItems(List<String> items)
-            throws CharConversionException,
-            InfinitiveLoopException {
-        List<String> prevItems = getUncheckedItems();
-        if (!prevItems.containsAll(items) || !items.containsAll(prevItems)) {
-            updated = true;
-            StringBuilder buffer = new StringBuilder(512);
-            boolean first = true;
-            for (String item : items) {
-                if (first) {
-                    buffer.append(item);
-                } else {
-                    buffer.append('\"').append(item);
-                }
-                first = false;
-            }
-            ini.setKeyValue(CONFIG_UNCHECKED_REDIST_ITEMS, CONFIG_UNCHECKED_REDIST_ITEMS__ITEM_LIST, buffer.toString());
-        }
+    public synchronized boolean isUnchecked(String item) {
+        return items.contains(item);
+    }
+    
+    /**
+     * Memorize an item as unchecked, or forget it. Items that are not listed anymore stay memorized, in case they are
+     * found again later.
+     *
+     * @param item the item's path (folders ending with a file separator).
+     * @param unchecked true if the item is unchecked.
+     * @return true if the unchecked items changed.
+     */
+    public synchronized boolean setUnchecked(String item, boolean unchecked) {
+        boolean changed = unchecked ? items.add(item) : items.remove(item);
+        updated |= changed;
+        return changed;
     }
 }
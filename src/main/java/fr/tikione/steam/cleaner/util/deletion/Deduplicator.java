@@ -0,0 +1,462 @@
+package fr.tikione.steam.cleaner.util.deletion;
+
+import fr.tikione.steam.cleaner.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replaces identical redistributable packages with hard links to a single copy: the space is freed, but every game
+ * still finds its installers. Files are compared in three steps, each one only for the files that are still alike:
+ * <ol>
+ * <li>same drive and same size,</li>
+ * <li>same hash of their first and last bytes,</li>
+ * <li>same hash of their whole content, computed by several threads at once.</li>
+ * </ol>
+ * Files that are already hard links to each other are compared once, and replaced together.
+ * <p>Files are read through a direct buffer rather than memory-mapped: on Windows, a mapped file can't be replaced
+ * until its mapping is garbage-collected.
+ */
+public class Deduplicator {
+    
+    /** Smaller files are ignored: they hardly take more than a cluster, and a hard link doesn't free it. */
+    private static final long MIN_SIZE = 4096;
+    
+    /** Number of bytes hashed at the beginning and at the end of the files by the partial hash. */
+    private static final int PARTIAL_HASH_BYTES = 16 * 1024;
+    
+    /** Size of the read buffer of each hash thread. */
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    
+    /** Suffix of the temporary hard link that replaces a duplicate. */
+    private static final String LINK_SUFFIX = ".tikione-link";
+    
+    /** Number of threads hashing files at the same time. */
+    private final int workers;
+    
+    /** Read buffer of each hash thread. */
+    private final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    
+    /**
+     * Create a deduplicator.
+     *
+     * @param workers number of threads hashing files at the same time.
+     */
+    public Deduplicator(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+    
+    /**
+     * Find the identical files among some files and the content of some folders.
+     *
+     * @param files the files.
+     * @param folders the folders whose files are compared too.
+     * @return the groups of identical files, the largest space to save first.
+     * @throws InterruptedException if interrupted while waiting for the hash threads.
+     */
+    public List<Group> findDuplicates(Collection<File> files, Collection<File> folders)
+            throws InterruptedException {
+        Map<FileStore, Map<Long, List<Candidate>>> bySize = new HashMap<>(4);
+        Map<Object, Candidate> byFileKey = new HashMap<>(1024);
+        Set<Path> paths = new HashSet<>(1024);
+        for (File file : files) {
+            addCandidate(file.toPath().toAbsolutePath(), bySize, byFileKey, paths);
+        }
+        for (File folder : folders) {
+            try {
+                Files.walkFileTree(folder.toPath().toAbsolutePath(), new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        addCandidate(file, bySize, byFileKey, paths);
+                        return FileVisitResult.CONTINUE;
+                    }
+                    
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException ex) {
+                Log.error(ex);
+            }
+        }
+        List<List<Candidate>> alike = new ArrayList<>(256);
+        for (Map<Long, List<Candidate>> sizes : bySize.values()) {
+            for (List<Candidate> sameSize : sizes.values()) {
+                if (sameSize.size() > 1) {
+                    alike.add(sameSize);
+                }
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "dedup-hash");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            alike = regroupByHash(alike, true, executor);
+            List<List<Candidate>> toHashFully = new ArrayList<>(alike.size());
+            List<List<Candidate>> identical = new ArrayList<>(alike.size());
+            for (List<Candidate> group : alike) {
+                if (group.get(0).size > 2L * PARTIAL_HASH_BYTES) {
+                    toHashFully.add(group);
+                } else {
+                    // the partial hash covered the whole content
+                    identical.add(group);
+                }
+            }
+            identical.addAll(regroupByHash(toHashFully, false, executor));
+            List<Group> groups = new ArrayList<>(identical.size());
+            for (List<Candidate> group : identical) {
+                // keep the file that has the most names already
+                group.sort((a, b) -> a.paths.size() != b.paths.size()
+                        ? Integer.compare(b.paths.size(), a.paths.size()) : a.path.compareTo(b.path));
+                groups.add(new Group(group));
+            }
+            groups.sort((a, b) -> Long.compare(b.getSavableBytes(), a.getSavableBytes()));
+            return groups;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Replace the duplicates of each group with hard links to the first file of the group. A duplicate is not replaced
+     * if it was modified since it was hashed, and a group is skipped if its original was.
+     *
+     * @param groups the groups of identical files.
+     * @param listener notified with the outcome of each replacement.
+     * @return the outcome of the replacements: the number of duplicates replaced or not, and the space freed.
+     */
+    public DeletionTotals link(List<Group> groups, Listener listener) {
+        DeletionTotals totals = new DeletionTotals();
+        for (Group group : groups) {
+            Candidate original = group.candidates.get(0);
+            boolean skipped = false;
+            for (Candidate duplicate : group.candidates.subList(1, group.candidates.size())) {
+                int failed = 0;
+                for (int i = 0; i < duplicate.paths.size(); i++) {
+                    Path path = duplicate.paths.get(i);
+                    if (!skipped && !isUnmodified(original.path, original)) {
+                        Log.info("Not linked: '" + original.path + "' and its duplicates, modified since it was hashed");
+                        skipped = true;
+                    }
+                    boolean res = !skipped && link(path, duplicate, original.path);
+                    failed += res ? 0 : 1;
+                    // the space is freed once every name of the duplicate is a link to the original
+                    long freedBytes = failed == 0 && i == duplicate.paths.size() - 1 ? duplicate.size : 0;
+                    if (res) {
+                        totals.deleted(freedBytes);
+                    } else {
+                        totals.failed(0);
+                    }
+                    Log.info("Link file : " + path + " to " + original.path + " ... " + (res ? "OK" : "ERROR")
+                            + ", " + freedBytes + " bytes freed");
+                    listener.linked(path.toFile(), original.path.toFile(), res, freedBytes);
+                }
+            }
+        }
+        return totals;
+    }
+    
+    /**
+     * Replace a name of a duplicate with a hard link to the original, unless the duplicate was modified since it was
+     * hashed.
+     *
+     * @param path the name of the duplicate.
+     * @param duplicate the duplicate.
+     * @param original the original.
+     * @return true if the name was replaced.
+     */
+    private static boolean link(Path path, Candidate duplicate, Path original) {
+        Path link = path.resolveSibling(path.getFileName() + LINK_SUFFIX);
+        try {
+            if (!isUnmodified(path, duplicate)) {
+                throw new IOException("modified since it was hashed");
+            }
+            Files.createLink(link, original);
+            Files.move(link, path, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException | UnsupportedOperationException ex) {
+            Log.info("Not linked: '" + path + "', " + ex);
+            try {
+                Files.deleteIfExists(link);
+            } catch (IOException ex1) {
+                Log.error(ex1);
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * Indicates if a file still has the size and the modification time it had when it was hashed.
+     *
+     * @param path a name of the file.
+     * @param candidate the file as it was hashed.
+     * @return true if the file looks unmodified, false if it was modified or can't be read.
+     */
+    private static boolean isUnmodified(Path path, Candidate candidate) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return attrs.size() == candidate.size && attrs.lastModifiedTime().equals(candidate.lastModified);
+        } catch (IOException ex) {
+            Log.info("Not compared: '" + path + "', " + ex);
+            return false;
+        }
+    }
+    
+    /**
+     * Add a file to the files to compare, unless it is too small. A hard link to a file already added is added as
+     * another name of this file: it is found by its file key, or by comparing it with the files of the same size when
+     * the file system has no file keys (Windows).
+     *
+     * @param file the absolute path of the file.
+     * @param bySize the files to compare, by drive and by size.
+     * @param byFileKey the files already added, by file key.
+     * @param paths the paths already added.
+     */
+    private static void addCandidate(Path file, Map<FileStore, Map<Long, List<Candidate>>> bySize,
+            Map<Object, Candidate> byFileKey, Set<Path> paths) {
+        if (!paths.add(file)) {
+            return;
+        }
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (!attrs.isRegularFile() || attrs.size() < MIN_SIZE) {
+                return;
+            }
+            Object fileKey = attrs.fileKey();
+            Candidate known = fileKey == null ? null : byFileKey.get(fileKey);
+            if (known != null) {
+                known.paths.add(file);
+                return;
+            }
+            List<Candidate> sameSize = bySize.computeIfAbsent(Files.getFileStore(file), store -> new HashMap<>(256))
+                    .computeIfAbsent(attrs.size(), size -> new ArrayList<>(2));
+            if (fileKey == null) {
+                for (Candidate other : sameSize) {
+                    if (Files.isSameFile(other.path, file)) {
+                        other.paths.add(file);
+                        return;
+                    }
+                }
+            }
+            Candidate candidate = new Candidate(file, attrs.size(), attrs.lastModifiedTime());
+            if (fileKey != null) {
+                byFileKey.put(fileKey, candidate);
+            }
+            sameSize.add(candidate);
+        } catch (IOException ex) {
+            Log.info("Not compared: '" + file + "', " + ex);
+        }
+    }
+    
+    /**
+     * Split groups of files by hash, in parallel.
+     *
+     * @param groups the groups of files.
+     * @param partial true to hash the beginning and the end of the files, false to hash their whole content.
+     * @param executor runs the hash tasks.
+     * @return the groups of at least two files with the same hash. Files that can't be read are left out.
+     * @throws InterruptedException if interrupted while waiting for the hash threads.
+     */
+    private List<List<Candidate>> regroupByHash(List<List<Candidate>> groups, boolean partial, ExecutorService executor)
+            throws InterruptedException {
+        List<Callable<ByteBuffer>> tasks = new ArrayList<>(groups.size() * 2);
+        for (List<Candidate> group : groups) {
+            for (Candidate candidate : group) {
+                tasks.add(() -> hash(candidate, partial));
+            }
+        }
+        List<Future<ByteBuffer>> hashes = executor.invokeAll(tasks);
+        List<List<Candidate>> regrouped = new ArrayList<>(groups.size());
+        int task = 0;
+        for (List<Candidate> group : groups) {
+            Map<ByteBuffer, List<Candidate>> byHash = new LinkedHashMap<>(4);
+            for (Candidate candidate : group) {
+                ByteBuffer hash;
+                try {
+                    hash = hashes.get(task++).get();
+                } catch (ExecutionException ex) {
+                    Log.info("Not compared: '" + candidate.path + "', " + ex.getCause());
+                    continue;
+                }
+                byHash.computeIfAbsent(hash, key -> new ArrayList<>(2)).add(candidate);
+            }
+            for (List<Candidate> sameHash : byHash.values()) {
+                if (sameHash.size() > 1) {
+                    regrouped.add(sameHash);
+                }
+            }
+        }
+        return regrouped;
+    }
+    
+    /**
+     * Hash a file, through the read buffer of the current thread.
+     *
+     * @param candidate the file.
+     * @param partial true to hash the beginning and the end of the file, false to hash its whole content.
+     * @return the hash.
+     * @throws IOException if an I/O error occurs while reading the file.
+     * @throws NoSuchAlgorithmException if the hash algorithm is not available.
+     */
+    private ByteBuffer hash(Candidate candidate, boolean partial)
+            throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        ByteBuffer buffer = buffers.get();
+        try (FileChannel channel = FileChannel.open(candidate.path, StandardOpenOption.READ)) {
+            if (partial) {
+                long headLength = Math.min(PARTIAL_HASH_BYTES, candidate.size);
+                update(digest, channel, buffer, 0, headLength);
+                long tailStart = Math.max(headLength, candidate.size - PARTIAL_HASH_BYTES);
+                update(digest, channel, buffer, tailStart, candidate.size - tailStart);
+            } else {
+                update(digest, channel, buffer, 0, candidate.size);
+            }
+        }
+        return ByteBuffer.wrap(digest.digest());
+    }
+    
+    /**
+     * Add a part of a file to a hash.
+     *
+     * @param digest the hash.
+     * @param channel the file.
+     * @param buffer the read buffer.
+     * @param position the position of the part in the file.
+     * @param length the length of the part.
+     * @throws IOException if an I/O error occurs while reading the file.
+     */
+    private static void update(MessageDigest digest, FileChannel channel, ByteBuffer buffer, long position, long length)
+            throws IOException {
+        long end = position + length;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("file shortened while hashed");
+            }
+            buffer.flip();
+            digest.update(buffer);
+            position += read;
+        }
+    }
+    
+    /** A file to compare. */
+    private static class Candidate {
+        
+        /** The first name of the file. */
+        private final Path path;
+        
+        /** All the names of the file: the first one, then the hard links to it. */
+        private final List<Path> paths = new ArrayList<>(1);
+        
+        private final long size;
+        
+        private final FileTime lastModified;
+        
+        private Candidate(Path path, long size, FileTime lastModified) {
+            this.path = path;
+            paths.add(path);
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+    
+    /** Identical files. */
+    public static class Group {
+        
+        private final List<Candidate> candidates;
+        
+        private Group(List<Candidate> candidates) {
+            this.candidates = candidates;
+        }
+        
+        /**
+         * Get the file that is kept.
+         *
+         * @return the file.
+         */
+        public File getOriginal() {
+            return candidates.get(0).path.toFile();
+        }
+        
+        /**
+         * Get the files that are replaced with hard links to the original.
+         *
+         * @return the files.
+         */
+        public List<File> getDuplicates() {
+            List<File> files = new ArrayList<>(candidates.size());
+            for (Candidate candidate : candidates.subList(1, candidates.size())) {
+                for (Path path : candidate.paths) {
+                    files.add(path.toFile());
+                }
+            }
+            return Collections.unmodifiableList(files);
+        }
+        
+        /**
+         * Get the size of each file.
+         *
+         * @return the size in bytes.
+         */
+        public long getSize() {
+            return candidates.get(0).size;
+        }
+        
+        /**
+         * Get the space freed by replacing the duplicates with hard links.
+         *
+         * @return the size in bytes.
+         */
+        public long getSavableBytes() {
+            return getSize() * (candidates.size() - 1);
+        }
+    }
+    
+    /** Receives the outcome of each replacement. */
+    public interface Listener {
+        
+        /**
+         * Called once a duplicate has been replaced with a hard link, or could not be.
+         *
+         * @param duplicate the duplicate.
+         * @param original the file the duplicate is now a hard link to.
+         * @param linked true if the duplicate was replaced.
+         * @param freedBytes the space freed in bytes.
+         */
+        void linked(File duplicate, File original, boolean linked, long freedBytes);
+    }
+}
@@ -0,0 +1,98 @@
+package fr.tikione.steam.cleaner.util.deletion;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome of a deletion, updated by the deletion threads at the same time.
+ */
+public class DeletionTotals {
+    
+    private final LongAdder deleted = new LongAdder();
+    
+    private final LongAdder failed = new LongAdder();
+    
+    private final LongAdder skipped = new LongAdder();
+    
+    private final LongAdder quarantined = new LongAdder();
+    
+    private final LongAdder freedBytes = new LongAdder();
+    
+    /**
+     * Count a file or folder deleted.
+     *
+     * @param bytes the space freed in bytes.
+     */
+    void deleted(long bytes) {
+        deleted.increment();
+        freedBytes.add(bytes);
+    }
+    
+    /**
+     * Count a file or folder that could not be deleted, or only partly.
+     *
+     * @param bytes the space freed anyway in bytes.
+     */
+    void failed(long bytes) {
+        failed.increment();
+        freedBytes.add(bytes);
+    }
+    
+    /**
+     * Count a file or folder that was already deleted.
+     */
+    void skipped() {
+        skipped.increment();
+    }
+    
+    /**
+     * Count a file or folder moved to the quarantine.
+     */
+    void quarantined() {
+        quarantined.increment();
+    }
+    
+    /**
+     * Get the number of files and folders deleted.
+     *
+     * @return the number of files and folders.
+     */
+    public long getDeleted() {
+        return deleted.sum();
+    }
+    
+    /**
+     * Get the number of files and folders that could not be deleted, or only partly.
+     *
+     * @return the number of files and folders.
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+    
+    /**
+     * Get the number of files and folders that were already deleted.
+     *
+     * @return the number of files and folders.
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+    
+    /**
+     * Get the number of files and folders moved to the quarantine. Their space is freed once the quarantine is purged.
+     *
+     * @return the number of files and folders.
+     */
+    public long getQuarantined() {
+        return quarantined.sum();
+    }
+    
+    /**
+     * Get the space freed.
+     *
+     * @return the size in bytes.
+     */
+    public long getFreedBytes() {
+        return freedBytes.sum();
+    }
+}
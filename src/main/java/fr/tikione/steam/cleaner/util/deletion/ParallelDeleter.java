@@ -0,0 +1,242 @@
+package fr.tikione.steam.cleaner.util.deletion;
+
+import fr.tikione.steam.cleaner.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Deletes files and folders in parallel. The targets are grouped by drive ({@link FileStore}), and each drive gets its
+ * own deletion threads: a slow drive doesn't hold back the others, and a drive is never asked for more than a few
+ * deletions at once.
+ * <p>Files are deleted first, then folders, like the sequential deletion did. A folder inside another folder to delete
+ * is deleted with its parent. Each folder is measured while it is deleted ({@link TreeDeleter}), so the space reported
+ * as freed is the size of the files actually deleted.
+ * <p>With a {@link Quarantine}, the targets are moved to the quarantine of their drive instead, and only deleted if
+ * they can't be moved.
+ */
+public class ParallelDeleter {
+    
+    /** Number of deletion threads per drive. */
+    private final int workersPerDevice;
+    
+    /** Receives the targets instead of deleting them, null to delete them. */
+    private final Quarantine quarantine;
+    
+    /** Notified with the outcome of each deletion. */
+    private final Listener listener;
+    
+    /**
+     * Create a parallel deleter.
+     *
+     * @param workersPerDevice number of threads deleting files at the same time on each drive.
+     * @param listener notified with the outcome of each deletion, from the deletion threads.
+     */
+    public ParallelDeleter(int workersPerDevice, Listener listener) {
+        this(workersPerDevice, null, listener);
+    }
+    
+    /**
+     * Create a parallel deleter that moves the targets to a quarantine.
+     *
+     * @param workersPerDevice number of threads deleting files at the same time on each drive.
+     * @param quarantine receives the targets instead of deleting them, null to delete them.
+     * @param listener notified with the outcome of each deletion, from the deletion threads.
+     */
+    public ParallelDeleter(int workersPerDevice, Quarantine quarantine, Listener listener) {
+        this.workersPerDevice = Math.max(1, workersPerDevice);
+        this.quarantine = quarantine;
+        this.listener = listener;
+    }
+    
+    /**
+     * Delete some files and folders, and wait for the end of the deletion.
+     *
+     * @param files the files to delete.
+     * @param folders the folders to delete.
+     * @return the outcome of the deletion.
+     * @throws InterruptedException if interrupted while waiting for the deletion threads.
+     */
+    public DeletionTotals delete(List<File> files, List<File> folders)
+            throws InterruptedException {
+        DeletionTotals totals = new DeletionTotals();
+        run(files, false, totals);
+        run(withoutNestedFolders(folders), true, totals);
+        return totals;
+    }
+    
+    /**
+     * Delete some files or folders, with the deletion threads of their drives.
+     *
+     * @param targets the files or folders to delete.
+     * @param folder indicates if the targets are folders.
+     * @param totals receives the outcome of each deletion.
+     * @throws InterruptedException if interrupted while waiting for the deletion threads.
+     */
+    private void run(List<File> targets, boolean folder, DeletionTotals totals)
+            throws InterruptedException {
+        List<Thread> threads = new ArrayList<>(8);
+        int deviceIndex = 0;
+        for (Queue<File> device : groupByDevice(targets).values()) {
+            int workers = Math.min(workersPerDevice, device.size());
+            for (int i = 0; i < workers; i++) {
+                Thread thread = new Thread(() -> {
+                    File target;
+                    while ((target = device.poll()) != null) {
+                        delete(target, folder, totals);
+                    }
+                }, "deletion-" + deviceIndex + '-' + i);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+            deviceIndex++;
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException ex) {
+            threads.forEach(Thread::interrupt);
+            throw ex;
+        }
+    }
+    
+    /**
+     * Group files or folders by drive. Targets whose drive can't be found (already deleted, for instance) are grouped
+     * together.
+     *
+     * @param targets the files or folders.
+     * @return the targets of each drive.
+     */
+    private static Map<FileStore, Queue<File>> groupByDevice(List<File> targets) {
+        Map<FileStore, Queue<File>> devices = new LinkedHashMap<>(4);
+        for (File target : targets) {
+            FileStore store;
+            try {
+                store = Files.getFileStore(target.toPath());
+            } catch (IOException ex) {
+                store = null;
+            }
+            devices.computeIfAbsent(store, key -> new ConcurrentLinkedQueue<>()).add(target);
+        }
+        return devices;
+    }
+    
+    /**
+     * Remove the folders that are inside another folder of the list: two threads must not delete the same tree.
+     *
+     * @param folders the folders.
+     * @return the outermost folders.
+     */
+    private static List<File> withoutNestedFolders(List<File> folders) {
+        Set<File> all = new HashSet<>(folders.size() * 2);
+        for (File folder : folders) {
+            all.add(folder.getAbsoluteFile());
+        }
+        List<File> outermost = new ArrayList<>(folders.size());
+        for (File folder : folders) {
+            boolean nested = false;
+            File parent = folder.getAbsoluteFile().getParentFile();
+            while (parent != null && !nested) {
+                nested = all.contains(parent);
+                parent = parent.getParentFile();
+            }
+            if (nested) {
+                Log.info("Delete folder : " + folder.getAbsolutePath() + " ... SKIPPED (deleted with its parent folder)");
+            } else {
+                outermost.add(folder);
+            }
+        }
+        return Collections.unmodifiableList(outermost);
+    }
+    
+    /**
+     * Delete a single file or folder, and measure the space freed.
+     *
+     * @param target the file or folder.
+     * @param folder indicates if the target is a folder.
+     * @param totals receives the outcome of the deletion.
+     */
+    private void delete(File target, boolean folder, DeletionTotals totals) {
+        String type = folder ? "folder" : "file";
+        if (!target.exists()) {
+            totals.skipped();
+            Log.info("Delete " + type + " : " + target.getAbsolutePath() + " ... SKIPPED (already deleted)");
+            return;
+        }
+        if (quarantine != null && quarantine.moveIn(target)) {
+            totals.quarantined();
+            Log.info("Delete " + type + " : " + target.getAbsolutePath() + " ... QUARANTINED");
+            listener.quarantined(target, folder);
+            return;
+        }
+        Path path = target.toPath();
+        boolean res;
+        long freedBytes;
+        if (folder) {
+            TreeDeleter tree = TreeDeleter.delete(path);
+            res = tree.isComplete();
+            freedBytes = tree.getFreedBytes();
+        } else {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                Files.delete(path);
+                res = true;
+                freedBytes = attrs.isSymbolicLink() ? 0 : attrs.size();
+            } catch (IOException ex) {
+                Log.info("Not deleted: '" + path + "', " + ex);
+                res = false;
+                freedBytes = 0;
+            }
+        }
+        if (res) {
+            totals.deleted(freedBytes);
+        } else {
+            totals.failed(freedBytes);
+        }
+        Log.info("Delete " + type + " : " + target.getAbsolutePath() + " ... " + (res ? "OK" : "ERROR")
+                + ", " + freedBytes + " bytes freed");
+        listener.deleted(target, folder, res, freedBytes);
+    }
+    
+    /** Receives the outcome of each deletion. */
+    public interface Listener {
+        
+        /**
+         * Called once a file or folder has been deleted, or could not be. Not called for the targets that were already
+         * deleted.
+         *
+         * @param target the file or folder.
+         * @param folder indicates if the target is a folder.
+         * @param deleted true if the target was deleted, false if it could not be deleted or only partly.
+         * @param freedBytes the space actually freed in bytes, even if the target was only partly deleted.
+         */
+        void deleted(File target, boolean folder, boolean deleted, long freedBytes);
+        
+        /**
+         * Called once a file or folder has been moved to the quarantine. By default, it is reported as deleted, with
+         * no space freed yet.
+         *
+         * @param target the file or folder.
+         * @param folder indicates if the target is a folder.
+         */
+        default void quarantined(File target, boolean folder) {
+            deleted(target, folder, true, 0);
+        }
+    }
+}
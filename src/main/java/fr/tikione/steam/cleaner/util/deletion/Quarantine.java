@@ -0,0 +1,392 @@
+package fr.tikione.steam.cleaner.util.deletion;
+
+import fr.tikione.steam.cleaner.util.Log;
+import fr.tikione.steam.cleaner.util.conf.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Holding area for the redistributable packages to delete. Instead of being deleted, each file or folder is renamed
+ * into a quarantine folder of its own drive, which takes the same time whatever its size. The quarantine is purged
+ * later, by a low-priority background thread, and its content can be restored until then.
+ * <p>Each drive gets a quarantine folder named {@value #FOLDER_NAME}, created in the highest writable folder of the
+ * drive above the first item moved. Every quarantined item is renamed to <code>&lt;time&gt;-&lt;number&gt;</code>,
+ * next to a <code>.origin</code> file that holds its original path. An item is renamed again with a
+ * <code>.purging</code> extension before being purged, so it is never restored and purged at the same time, even by
+ * two instances of the program. The quarantine folders are listed in a file of the user profile.
+ */
+public class Quarantine {
+    
+    /** Name of the quarantine folders. It is excluded from the search path. */
+    public static final String FOLDER_NAME = ".tikione-steam-cleaner_quarantine";
+    
+    /** Extension of the files that hold the original path of the quarantined items. */
+    private static final String ORIGIN_EXT = ".origin";
+    
+    /** Extension of the quarantined items being purged. */
+    private static final String PURGING_EXT = ".purging";
+    
+    /** Name of the quarantined items: time of the quarantine, then a number. */
+    private static final Pattern ITEM_NAME = Pattern.compile("\\d+-\\d+");
+    
+    /** Only one purge runs at a time, so an item is never purged by two threads. */
+    private static final Object PURGE_LOCK = new Object();
+    
+    /** File listing the quarantine folders. */
+    private final File foldersFile;
+    
+    /** Known quarantine folders. */
+    private final Set<Path> folders = new LinkedHashSet<>(4);
+    
+    /** Quarantine folder of each drive, null if the drive has none. */
+    private final Map<FileStore, Path> folderByDevice = new HashMap<>(4);
+    
+    /** Number of the latest quarantined item. */
+    private final AtomicLong counter = new AtomicLong();
+    
+    /** Time the items stay in quarantine before they can be purged, in milliseconds. */
+    private final long retentionMillis;
+    
+    /**
+     * Load the list of quarantine folders.
+     *
+     * @param retentionHours number of hours the items stay in quarantine before they can be purged.
+     */
+    public Quarantine(int retentionHours) {
+        retentionMillis = TimeUnit.HOURS.toMillis(Math.max(0, retentionHours));
+        File userprofile = new File(Config.getProfilePath());
+        //noinspection ResultOfMethodCallIgnored
+        userprofile.mkdirs();
+        foldersFile = new File(userprofile.getAbsolutePath() + "/tikione-steam-cleaner_quarantine-folders.txt");
+        if (foldersFile.exists()) {
+            try {
+                for (String folder : Files.readAllLines(foldersFile.toPath(), StandardCharsets.UTF_8)) {
+                    if (folder.length() > 0) {
+                        folders.add(Paths.get(folder));
+                    }
+                }
+            } catch (IOException ex) {
+                Log.error(ex);
+            }
+        }
+    }
+    
+    /**
+     * Move a file or folder to the quarantine of its drive.
+     *
+     * @param target the file or folder.
+     * @return true if it was moved, false if it has to be deleted instead: its drive has no quarantine folder, or the
+     * drive can't rename it atomically.
+     */
+    public boolean moveIn(File target) {
+        Path path = target.toPath().toAbsolutePath();
+        Path folder;
+        try {
+            folder = getFolder(path);
+        } catch (IOException ex) {
+            Log.info("Not moved to quarantine: '" + path + "', " + ex);
+            return false;
+        }
+        if (folder == null) {
+            return false;
+        }
+        byte[] origin = path.toString().getBytes(StandardCharsets.UTF_8);
+        String id;
+        Path originFile;
+        while (true) {
+            id = System.currentTimeMillis() + "-" + counter.incrementAndGet();
+            originFile = folder.resolve(id + ORIGIN_EXT);
+            try {
+                Files.write(originFile, origin, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                break;
+            } catch (FileAlreadyExistsException ex) {
+                // used by another instance of the program, try the next number
+            } catch (IOException ex) {
+                Log.info("Not moved to quarantine: '" + path + "', " + ex);
+                return false;
+            }
+        }
+        try {
+            Files.move(path, folder.resolve(id), StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException ex) {
+            Log.info("Not moved to quarantine: '" + path + "', " + ex);
+            deleteQuietly(originFile);
+            return false;
+        }
+    }
+    
+    /**
+     * Move all the quarantined items back to their original place, the latest quarantined first, so a folder is
+     * restored before the files that were inside it. An item is not restored if its original place is taken.
+     *
+     * @param listener notified with the outcome of each restoration.
+     */
+    public void restore(Listener listener) {
+        for (Path folder : getFolders()) {
+            List<Path> items = listItems(folder);
+            items.sort((a, b) -> {
+                int cmp = Long.compare(getTime(b), getTime(a));
+                return cmp != 0 ? cmp : Long.compare(getNumber(b), getNumber(a));
+            });
+            for (Path item : items) {
+                Path originFile = item.resolveSibling(item.getFileName() + ORIGIN_EXT);
+                Path origin;
+                try {
+                    origin = Paths.get(new String(Files.readAllBytes(originFile), StandardCharsets.UTF_8));
+                } catch (IOException ex) {
+                    Log.info("Not restored: '" + item + "', " + ex);
+                    continue;
+                }
+                boolean res;
+                try {
+                    if (Files.exists(origin, LinkOption.NOFOLLOW_LINKS)) {
+                        // a rename could replace it
+                        throw new FileAlreadyExistsException(origin.toString());
+                    }
+                    if (origin.getParent() != null) {
+                        Files.createDirectories(origin.getParent());
+                    }
+                    Files.move(item, origin, StandardCopyOption.ATOMIC_MOVE);
+                    deleteQuietly(originFile);
+                    res = true;
+                } catch (IOException ex) {
+                    Log.info("Not restored: '" + item + "', " + ex);
+                    res = false;
+                }
+                Log.info("Restore : " + origin + " ... " + (res ? "OK" : "ERROR"));
+                listener.done(origin.toFile(), res);
+            }
+        }
+    }
+    
+    /**
+     * Delete the quarantined items, and what remains of the items whose purge was interrupted.
+     *
+     * @param all true to delete all the items, false to keep the ones quarantined for less than the retention time.
+     * @param listener notified with the outcome of each deletion.
+     */
+    public void purge(boolean all, Listener listener) {
+        long limit = all ? Long.MAX_VALUE : System.currentTimeMillis() - retentionMillis;
+        synchronized (PURGE_LOCK) {
+            for (Path folder : getFolders()) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*" + PURGING_EXT)) {
+                    for (Path leftover : stream) {
+                        TreeDeleter.delete(leftover);
+                    }
+                } catch (IOException ex) {
+                    Log.error(ex);
+                }
+                for (Path item : listItems(folder)) {
+                    if (getTime(item) > limit) {
+                        continue;
+                    }
+                    Path purging = item.resolveSibling(item.getFileName() + PURGING_EXT);
+                    Path originFile = item.resolveSibling(item.getFileName() + ORIGIN_EXT);
+                    Path origin;
+                    try {
+                        Files.move(item, purging, StandardCopyOption.ATOMIC_MOVE);
+                        origin = Paths.get(new String(Files.readAllBytes(originFile), StandardCharsets.UTF_8));
+                        Files.delete(originFile);
+                    } catch (IOException ex) {
+                        // restored or purged meanwhile
+                        continue;
+                    }
+                    TreeDeleter tree = TreeDeleter.delete(purging);
+                    Log.info("Purge : " + origin + " ... " + (tree.isComplete() ? "OK" : "ERROR") + ", "
+                            + tree.getFreedBytes() + " bytes freed");
+                    listener.done(origin.toFile(), tree.isComplete());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Purge the items quarantined for more than the retention time, in a low-priority background thread.
+     *
+     * @return the purge thread, already started.
+     */
+    public Thread startPurger() {
+        Thread purger = new Thread(() -> purge(false, (origin, done) -> {
+        }), "quarantine-purger");
+        purger.setPriority(Thread.MIN_PRIORITY);
+        purger.setDaemon(true);
+        purger.start();
+        return purger;
+    }
+    
+    /**
+     * Get the quarantine folder of a file or folder's drive, and create it if needed.
+     *
+     * @param target the absolute path of the file or folder.
+     * @return the quarantine folder, or null if none can be created on this drive.
+     * @throws IOException if the drive of the file or folder can't be found.
+     */
+    private Path getFolder(Path target)
+            throws IOException {
+        FileStore store = Files.getFileStore(target);
+        synchronized (folderByDevice) {
+            if (!folderByDevice.containsKey(store)) {
+                folderByDevice.put(store, findFolder(target, store));
+            }
+            return folderByDevice.get(store);
+        }
+    }
+    
+    /**
+     * Find the quarantine folder of a drive: a known one, otherwise a new one in the highest writable folder of the
+     * drive above a file or folder.
+     *
+     * @param target the absolute path of a file or folder of the drive.
+     * @param store the drive.
+     * @return the quarantine folder, or null if none can be created.
+     */
+    private Path findFolder(Path target, FileStore store) {
+        for (Path folder : getFolders()) {
+            if (isOnDevice(folder, store)) {
+                return folder;
+            }
+        }
+        List<Path> parents = new ArrayList<>(16);
+        Path parent = target.getParent();
+        while (parent != null && isOnDevice(parent, store)) {
+            parents.add(parent);
+            parent = parent.getParent();
+        }
+        for (int i = parents.size() - 1; i >= 0; i--) {
+            Path folder = parents.get(i).resolve(FOLDER_NAME);
+            try {
+                Files.createDirectories(folder);
+            } catch (IOException ex) {
+                // not writable, try a deeper folder
+                continue;
+            }
+            try {
+                Files.setAttribute(folder, "dos:hidden", true);
+            } catch (IOException | UnsupportedOperationException ex) {
+                // not a DOS file system, the name starts with a dot anyway
+            }
+            addFolder(folder);
+            Log.info("Quarantine folder: '" + folder + "'");
+            return folder;
+        }
+        Log.info("No quarantine folder on drive: '" + store + "'");
+        return null;
+    }
+    
+    private static boolean isOnDevice(Path path, FileStore store) {
+        try {
+            return Files.getFileStore(path).equals(store);
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+    
+    /**
+     * Get the known quarantine folders that still exist.
+     *
+     * @return the quarantine folders.
+     */
+    private List<Path> getFolders() {
+        synchronized (folders) {
+            List<Path> existing = new ArrayList<>(folders.size());
+            for (Path folder : folders) {
+                if (Files.isDirectory(folder)) {
+                    existing.add(folder);
+                }
+            }
+            return existing;
+        }
+    }
+    
+    /**
+     * Add a quarantine folder to the list, and save the list.
+     *
+     * @param folder the quarantine folder.
+     */
+    private void addFolder(Path folder) {
+        synchronized (folders) {
+            if (folders.add(folder)) {
+                List<String> lines = new ArrayList<>(folders.size());
+                for (Path known : folders) {
+                    lines.add(known.toString());
+                }
+                try {
+                    Files.write(foldersFile.toPath(), lines, StandardCharsets.UTF_8);
+                } catch (IOException ex) {
+                    Log.error(ex);
+                }
+            }
+        }
+    }
+    
+    /**
+     * List the quarantined items of a quarantine folder.
+     *
+     * @param folder the quarantine folder.
+     * @return the quarantined items, without the items being purged.
+     */
+    private static List<Path> listItems(Path folder) {
+        List<Path> items = new ArrayList<>(64);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+            for (Path item : stream) {
+                if (ITEM_NAME.matcher(item.getFileName().toString()).matches()) {
+                    items.add(item);
+                }
+            }
+        } catch (IOException ex) {
+            Log.error(ex);
+        }
+        return items;
+    }
+    
+    private static long getTime(Path item) {
+        String name = item.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.indexOf('-')));
+    }
+    
+    private static long getNumber(Path item) {
+        String name = item.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1));
+    }
+    
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            Log.error(ex);
+        }
+    }
+    
+    /** Receives the outcome of each restoration or purge. */
+    public interface Listener {
+        
+        /**
+         * Called once a quarantined item has been restored or purged, or could not be.
+         *
+         * @param origin the original path of the item.
+         * @param done true if the item was restored or purged.
+         */
+        void done(File origin, boolean done);
+    }
+}
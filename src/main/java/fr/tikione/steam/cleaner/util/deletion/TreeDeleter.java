@@ -0,0 +1,103 @@
+package fr.tikione.steam.cleaner.util.deletion;
+
+import fr.tikione.steam.cleaner.util.Log;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Deletes a folder in a single post-order walk: files are deleted as they are visited, and a folder once its content
+ * has been deleted. The size of each file comes from the attributes returned by the walk, so the folder doesn't need
+ * to be measured beforehand, and the space freed is known even if some files can't be deleted.
+ * <p>Symbolic links are deleted, never followed.
+ */
+class TreeDeleter extends SimpleFileVisitor<Path> {
+    
+    /** Size of the files deleted so far. */
+    private long freedBytes = 0;
+    
+    /** Indicates if everything was deleted so far. */
+    private boolean complete = true;
+    
+    private TreeDeleter() {
+    }
+    
+    /**
+     * Delete a folder and its content.
+     *
+     * @param folder the folder to delete.
+     * @return the outcome of the deletion.
+     */
+    static TreeDeleter delete(Path folder) {
+        TreeDeleter deleter = new TreeDeleter();
+        try {
+            Files.walkFileTree(folder, deleter);
+        } catch (IOException ex) {
+            Log.error(ex);
+            deleter.complete = false;
+        }
+        return deleter;
+    }
+    
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        try {
+            Files.delete(file);
+            if (!attrs.isSymbolicLink()) {
+                freedBytes += attrs.size();
+            }
+        } catch (IOException ex) {
+            Log.info("Not deleted: '" + file + "', " + ex);
+            complete = false;
+        }
+        return FileVisitResult.CONTINUE;
+    }
+    
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        Log.info("Not deleted: '" + file + "', " + exc);
+        complete = false;
+        return FileVisitResult.CONTINUE;
+    }
+    
+    @Override
+    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+        if (exc != null) {
+            Log.info("Not deleted: '" + dir + "', " + exc);
+            complete = false;
+        }
+        try {
+            Files.delete(dir);
+        } catch (DirectoryNotEmptyException ex) {
+            // some content could not be deleted, already logged
+            complete = false;
+        } catch (IOException ex) {
+            Log.info("Not deleted: '" + dir + "', " + ex);
+            complete = false;
+        }
+        return FileVisitResult.CONTINUE;
+    }
+    
+    /**
+     * Get the space freed by the deletion.
+     *
+     * @return the size in bytes of the files deleted.
+     */
+    long getFreedBytes() {
+        return freedBytes;
+    }
+    
+    /**
+     * Indicates if the whole folder was deleted.
+     *
+     * @return true if the folder and all its content were deleted.
+     */
+    boolean isComplete() {
+        return complete;
+    }
+}
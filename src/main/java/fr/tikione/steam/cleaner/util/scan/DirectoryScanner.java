@@ -0,0 +1,622 @@
+package fr.tikione.steam.cleaner.util.scan;
+
+import fr.tikione.steam.cleaner.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Folders scanner based on {@link Files#walkFileTree}. Every folder is listed once, and the attributes returned by the
+ * walk are reused to know the type, size and modification time of each entry. The size of the files is rolled up
+ * to their folders during the walk.
+ * <p>When the parallelism level is greater than 1, the sub-folders are walked concurrently by a {@link ForkJoinPool}:
+ * the set of entries found is the same, only the order in which they reach the sink changes.
+ */
+public class DirectoryScanner {
+    
+    /** The recursive search depth. */
+    private final int maxDepth;
+    
+    /** Folders patterns to exclude. */
+    private final FolderExclusions dangerousFolders;
+    
+    /** The running scan: cancellation request and progress. */
+    private final ScanTask task;
+    
+    /** Receives the scan progress. */
+    private final ScanProgress progress;
+    
+    /** Number of threads used to walk the folders (1 means a sequential walk on the calling thread). */
+    private final int parallelism;
+    
+    /** Content of the folders found by the previous scan, null to list every folder. */
+    private ScanCache cache = null;
+    
+    /**
+     * Create a folders scanner.
+     *
+     * @param maxDepth the recursive search depth.
+     * @param dangerousFolders list of folders patterns to exclude.
+     * @param task the running scan, checked for cancellation before each entry and notified with the progress.
+     */
+    public DirectoryScanner(int maxDepth, List<Pattern> dangerousFolders, ScanTask task) {
+        this(maxDepth, dangerousFolders, task, 1);
+    }
+    
+    /**
+     * Create a folders scanner.
+     *
+     * @param maxDepth the recursive search depth.
+     * @param dangerousFolders list of folders patterns to exclude.
+     * @param task the running scan, checked for cancellation before each entry and notified with the progress.
+     * @param parallelism number of threads used to walk the folders; 1 (or less) means a sequential walk.
+     */
+    public DirectoryScanner(int maxDepth, List<Pattern> dangerousFolders, ScanTask task, int parallelism) {
+        this.maxDepth = maxDepth;
+        this.dangerousFolders = new FolderExclusions(dangerousFolders);
+        this.task = task;
+        this.progress = task.getProgress();
+        this.parallelism = Math.max(1, parallelism);
+    }
+    
+    /**
+     * Reuse the content of the folders that did not change since the previous scan. The folders are then walked by
+     * folder tasks, even if the parallelism level is 1.
+     *
+     * @param cache content of the folders found by the previous scan (loaded by the caller), null to list every folder.
+     */
+    public void setCache(ScanCache cache) {
+        this.cache = cache;
+    }
+    
+    /**
+     * List all files and folders of some base folders with a recursive search. If the scan is cancelled, the walk
+     * stops and the entries found so far are the partial result.
+     *
+     * @param folders the base paths to initiate research from.
+     * @param sink receives every file and folder found. It is always called by one thread at a time, but not always
+     * the same one if the parallelism level is greater than 1.
+     */
+    public void scan(Collection<File> folders, Consumer<ScanEntry> sink) {
+        ForkJoinPool pool = parallelism > 1 || cache != null ? new ForkJoinPool(parallelism) : null;
+        if (cache != null) {
+            cache.startScan();
+        }
+        try {
+            scan(folders, sink, pool);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+    
+    private void scan(Collection<File> folders, Consumer<ScanEntry> sink, ForkJoinPool pool) {
+        for (File folder : folders) {
+            if (task.isCancelled()) {
+                break;
+            }
+            Log.info("Folder to scan: '" + folder.getAbsolutePath() + '\'');
+            if (!folder.exists()) {
+                Log.info("Skipped path: '" + folder.getAbsolutePath() + "', this path doesn't exist");
+                continue;
+            }
+            if (!folder.isDirectory()) {
+                Log.info("Skipped path: '" + folder.getAbsolutePath() + "', this path is not a directory");
+                continue;
+            }
+            Path root = folder.toPath().toAbsolutePath();
+            if (isDangerous(root, null)) {
+                continue;
+            }
+            try {
+                if (pool == null) {
+                    Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), maxDepth + 1, new Visitor(root, sink));
+                } else {
+                    ScanEntry rootEntry = new ScanEntry(root, Files.readAttributes(root, BasicFileAttributes.class), false);
+                    pool.invoke(new FolderTask(rootEntry, null, maxDepth, new SynchronizedSink(sink)));
+                }
+            } catch (IOException ex) {
+                Log.error(ex);
+            }
+        }
+    }
+    
+    /**
+     * Indicates if a folder matches one of the folders patterns to exclude.
+     *
+     * @param folder the folder to check.
+     * @param parent the parent folder if it was checked too, null for a base folder or a base folder's child.
+     * @return true if the folder has to be skipped, otherwise false.
+     */
+    private boolean isDangerous(Path folder, Path parent) {
+        String absolutePath = folder.toString();
+        if (dangerousFolders.isExcluded(absolutePath, parent == null ? 0 : parent.toString().length())) {
+            Log.info("Skipped hazardous place: '" + absolutePath + "'");
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Visitor of a single base folder. Folders at the maximum depth are reported as files by the walk: they are
+     * ignored, like the folders beyond the search depth.
+     * <p>The walk doesn't follow symbolic links, so every entry comes with its own attributes and links are known
+     * without reading them again: a link is followed here, and a linked folder is walked one child at a time.
+     * <p>The size of the files is added to their folder, and the size of a folder to its parent once the folder has
+     * been walked.
+     */
+    private class Visitor extends SimpleFileVisitor<Path> {
+        
+        private final Path root;
+        
+        private final Consumer<ScanEntry> sink;
+        
+        /** Sizes of the folders being walked, from the current folder to the base folder. */
+        private final Deque<FolderSize> folders = new ArrayDeque<>(16);
+        
+        /** The base folder's entry (not sent to the sink). */
+        private ScanEntry rootEntry;
+        
+        private Visitor(Path root, Consumer<ScanEntry> sink) {
+            this.root = root;
+            this.sink = sink;
+        }
+        
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (task.isCancelled()) {
+                return FileVisitResult.TERMINATE;
+            }
+            if (dir.equals(root)) {
+                rootEntry = new ScanEntry(dir, attrs, false);
+                progress.folderEntered(dir);
+                folders.push(new FolderSize(null));
+            } else {
+                Path parent = dir.getParent();
+                if (isDangerous(dir, root.equals(parent) ? null : parent)) {
+                    folders.element().complete = false;
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                ScanEntry entry = new ScanEntry(dir, attrs, false, currentFolder());
+                sink.accept(entry);
+                progress.folderEntered(dir);
+                folders.push(new FolderSize(entry));
+            }
+            return FileVisitResult.CONTINUE;
+        }
+        
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            if (task.isCancelled()) {
+                if (!folders.isEmpty()) {
+                    folders.element().complete = false;
+                }
+                return FileVisitResult.TERMINATE;
+            }
+            BasicFileAttributes fileAttrs = attrs;
+            if (attrs.isSymbolicLink()) {
+                try {
+                    fileAttrs = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (IOException ex) {
+                    // broken link: keep the link's own attributes
+                }
+                if (fileAttrs.isDirectory()) {
+                    visitLinkedFolder(file, fileAttrs);
+                    return FileVisitResult.CONTINUE;
+                }
+            }
+            if (fileAttrs.isDirectory()) {
+                folders.element().complete = false;
+            } else {
+                ScanEntry entry = new ScanEntry(file, fileAttrs, attrs.isSymbolicLink(), currentFolder());
+                sink.accept(entry);
+                if (!entry.isSymbolicLink()) {
+                    folders.element().bytes += entry.getSize();
+                }
+                progress.filesFound(1, entry.isSymbolicLink() ? 0 : entry.getSize());
+            }
+            return FileVisitResult.CONTINUE;
+        }
+        
+        /**
+         * Walk a folder reached through a symbolic link, like a folder found by the walk, unless it is beyond the
+         * search depth or it is one of the folders being walked. The base folder itself may be a link.
+         *
+         * @param link the symbolic link.
+         * @param attrs the attributes of the linked folder.
+         */
+        private void visitLinkedFolder(Path link, BasicFileAttributes attrs) {
+            int level = folders.size();
+            ScanEntry entry = null;
+            if (level == 0) {
+                rootEntry = new ScanEntry(link, attrs, true);
+            } else {
+                if (level > maxDepth) {
+                    folders.element().complete = false;
+                    return;
+                }
+                if (wouldLoop(link, attrs.fileKey())) {
+                    Log.info("Skipped path: '" + link + "', this path loops over a parent folder");
+                    return;
+                }
+                Path parent = link.getParent();
+                if (isDangerous(link, root.equals(parent) ? null : parent)) {
+                    folders.element().complete = false;
+                    return;
+                }
+                entry = new ScanEntry(link, attrs, true, currentFolder());
+                sink.accept(entry);
+            }
+            progress.folderEntered(link);
+            folders.push(new FolderSize(entry));
+            IOException failure = null;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(link)) {
+                for (Path child : stream) {
+                    if (task.isCancelled()) {
+                        folders.element().complete = false;
+                        break;
+                    }
+                    Files.walkFileTree(child, EnumSet.noneOf(FileVisitOption.class), maxDepth - level, this);
+                }
+            } catch (IOException ex) {
+                failure = ex;
+            }
+            postVisitDirectory(link, failure);
+        }
+        
+        /**
+         * Indicates if a folder is one of the folders being walked.
+         *
+         * @param dir the folder to check.
+         * @param key the unique key of the folder to check (may be null).
+         * @return true if walking the folder would loop.
+         */
+        private boolean wouldLoop(Path dir, Object key) {
+            for (FolderSize ancestor : folders) {
+                ScanEntry ancestorEntry = ancestor.entry == null ? rootEntry : ancestor.entry;
+                if (key != null && ancestorEntry.getFileKey() != null) {
+                    if (Objects.equals(key, ancestorEntry.getFileKey())) {
+                        return true;
+                    }
+                } else {
+                    try {
+                        if (Files.isSameFile(dir, ancestorEntry.getPath())) {
+                            return true;
+                        }
+                    } catch (IOException ex) {
+                        return false;
+                    }
+                }
+            }
+            return false;
+        }
+        
+        /**
+         * Get the folder being walked.
+         *
+         * @return the current folder's entry.
+         */
+        private ScanEntry currentFolder() {
+            ScanEntry folder = folders.element().entry;
+            return folder == null ? rootEntry : folder;
+        }
+        
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            Log.info("Skipped path: '" + file + "', " + exc);
+            if (!folders.isEmpty()) {
+                folders.element().complete = false;
+            }
+            return FileVisitResult.CONTINUE;
+        }
+        
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+            if (exc != null) {
+                Log.info("Skipped path: '" + dir + "', " + exc);
+            }
+            FolderSize folder = folders.pop();
+            if (folder.entry != null) {
+                folder.entry.setFolderSize(folder.bytes, folder.complete && exc == null);
+                folders.element().add(folder.entry);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+    }
+    
+    /** Total size of the files in a folder, being computed. */
+    private static class FolderSize {
+        
+        /** The folder, null for a base folder. */
+        private final ScanEntry entry;
+        
+        /** Total size of the files found so far. */
+        private long bytes = 0;
+        
+        /** Indicates if no file or folder was left out so far. */
+        private boolean complete = true;
+        
+        private FolderSize(ScanEntry entry) {
+            this.entry = entry;
+        }
+        
+        /**
+         * Add the size of a walked sub-folder. Folders reached through a symbolic link are not counted.
+         *
+         * @param folder the sub-folder.
+         */
+        private void add(ScanEntry folder) {
+            if (!folder.isSymbolicLink()) {
+                bytes += folder.getSize();
+                complete &= folder.isSizeComplete();
+            }
+        }
+    }
+    
+    /** Serializes the calls to a sink shared by several threads. */
+    private static class SynchronizedSink {
+        
+        private final Consumer<ScanEntry> sink;
+        
+        private SynchronizedSink(Consumer<ScanEntry> sink) {
+            this.sink = sink;
+        }
+        
+        private synchronized void acceptAll(List<ScanEntry> entries) {
+            entries.forEach(sink);
+        }
+    }
+    
+    /**
+     * Walk of a single folder, forking one sub-task per sub-folder. Mirrors the sequential walk: folders beyond the
+     * search depth are ignored and symbolic links that would loop over an ancestor folder are skipped.
+     * <p>With a {@link ScanCache}, a folder that did not change since the previous scan is not listed again: its
+     * remembered content is replayed.
+     */
+    @SuppressWarnings("serial")
+    private class FolderTask extends RecursiveAction {
+        
+        private final Path folder;
+        
+        /** Unique key of the folder (may be null), used to detect loops. */
+        private final Object fileKey;
+        
+        /** The task of the parent folder, null for a base folder. */
+        private final FolderTask parent;
+        
+        /** The remaining recursive search depth. */
+        private final int depth;
+        
+        private final SynchronizedSink sink;
+        
+        /** The folder's entry (not sent to the sink for a base folder). */
+        private final ScanEntry entry;
+        
+        /** Total size of the files in the folder, computed by the task. */
+        private final FolderSize size;
+        
+        private FolderTask(ScanEntry entry, FolderTask parent, int depth, SynchronizedSink sink) {
+            this.folder = entry.getPath();
+            this.fileKey = entry.getFileKey();
+            this.parent = parent;
+            this.depth = depth;
+            this.sink = sink;
+            this.entry = entry;
+            this.size = new FolderSize(entry);
+        }
+        
+        @Override
+        protected void compute() {
+            if (task.isCancelled()) {
+                size.complete = false;
+                return;
+            }
+            progress.folderEntered(folder);
+            List<ScanEntry> entries = new ArrayList<>(32);
+            List<FolderTask> subTasks = new ArrayList<>(8);
+            ScanCache.FolderState cached = cache == null ? null : cache.get(folder.toString(), entry.getLastModified());
+            if (cached == null || !replay(cached, entries, subTasks)) {
+                entries.clear();
+                subTasks.clear();
+                size.bytes = 0;
+                size.complete = true;
+                list(entries, subTasks);
+            }
+            progress.filesFound(entries.size() - subTasks.size(), size.bytes);
+            sink.acceptAll(entries);
+            invokeAll(subTasks);
+            for (FolderTask subTask : subTasks) {
+                size.add(subTask.entry);
+            }
+            if (parent != null) {
+                entry.setFolderSize(size.bytes, size.complete);
+            }
+        }
+        
+        /**
+         * List the folder's children, and remember them in the scan cache if any.
+         *
+         * @param entries receives the files and sub-folders found.
+         * @param subTasks receives the sub-folders to walk.
+         */
+        private void list(List<ScanEntry> entries, List<FolderTask> subTasks) {
+            List<String> subFolders = cache == null ? null : new ArrayList<>(8);
+            List<ScanCache.RememberedFile> files = cache == null ? null : new ArrayList<>(4);
+            boolean listed = true;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+                for (Path child : stream) {
+                    if (task.isCancelled()) {
+                        // keep what was listed so far, but don't remember a partial listing
+                        size.complete = false;
+                        listed = false;
+                        break;
+                    }
+                    ScanEntry childEntry;
+                    try {
+                        childEntry = readEntry(child);
+                    } catch (IOException ex) {
+                        Log.info("Skipped path: '" + child + "', " + ex);
+                        size.complete = false;
+                        listed = false;
+                        continue;
+                    }
+                    if (childEntry == null) {
+                        Log.info("Skipped path: '" + child + "', this path loops over a parent folder");
+                        if (subFolders != null) {
+                            subFolders.add(child.getFileName().toString());
+                        }
+                        continue;
+                    }
+                    if (childEntry.isDirectory()) {
+                        if (subFolders != null) {
+                            subFolders.add(childEntry.getName());
+                        }
+                        addSubFolder(childEntry, entries, subTasks);
+                    } else {
+                        entries.add(childEntry);
+                        if (!childEntry.isSymbolicLink()) {
+                            size.bytes += childEntry.getSize();
+                        }
+                        if (files != null && childEntry.isRegularFile() && cache.isToRemember(childEntry.getName())) {
+                            files.add(new ScanCache.RememberedFile(childEntry.getName(), childEntry.getSize(),
+                                    childEntry.getLastModified(), childEntry.isSymbolicLink()));
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                Log.info("Skipped path: '" + folder + "', " + ex);
+                size.complete = false;
+                listed = false;
+            }
+            if (cache != null && listed) {
+                cache.put(folder.toString(), new ScanCache.FolderState(entry.getLastModified(), size.bytes,
+                        subFolders.toArray(new String[subFolders.size()]),
+                        files.toArray(new ScanCache.RememberedFile[files.size()])));
+            }
+        }
+        
+        /**
+         * Replay the folder's children remembered by the previous scan.
+         *
+         * @param cached the folder's content remembered by the previous scan.
+         * @param entries receives the files and sub-folders found.
+         * @param subTasks receives the sub-folders to walk.
+         * @return true if the folder's content was replayed, false if a sub-folder changed and the folder has to be
+         * listed again.
+         */
+        private boolean replay(ScanCache.FolderState cached, List<ScanEntry> entries, List<FolderTask> subTasks) {
+            for (String subFolder : cached.subFolders) {
+                if (task.isCancelled()) {
+                    return false;
+                }
+                Path child = folder.resolve(subFolder);
+                ScanEntry childEntry;
+                try {
+                    childEntry = readEntry(child);
+                } catch (IOException ex) {
+                    return false;
+                }
+                if (childEntry == null) {
+                    Log.info("Skipped path: '" + child + "', this path loops over a parent folder");
+                } else if (childEntry.isDirectory()) {
+                    addSubFolder(childEntry, entries, subTasks);
+                } else {
+                    return false;
+                }
+            }
+            for (ScanCache.RememberedFile file : cached.files) {
+                entries.add(new ScanEntry(folder.resolve(file.name), file.size, file.lastModified, file.symbolicLink, entry));
+            }
+            size.bytes += cached.filesSize;
+            cache.put(folder.toString(), cached);
+            return true;
+        }
+        
+        /**
+         * Add a sub-folder to walk, unless it is beyond the search depth or excluded from the search.
+         *
+         * @param childEntry the sub-folder.
+         * @param entries receives the sub-folder.
+         * @param subTasks receives the sub-folder's task.
+         */
+        private void addSubFolder(ScanEntry childEntry, List<ScanEntry> entries, List<FolderTask> subTasks) {
+            if (depth > 0 && !isDangerous(childEntry.getPath(), parent == null ? null : folder)) {
+                entries.add(childEntry);
+                subTasks.add(new FolderTask(childEntry, this, depth - 1, sink));
+            } else {
+                size.complete = false;
+            }
+        }
+        
+        /**
+         * Read the attributes of a folder's child, following symbolic links like the sequential walk does. The link's
+         * own attributes are kept if its target can't be read.
+         *
+         * @param child the child to read attributes from.
+         * @return the child's entry, or null if the child is a link to one of the ancestor folders.
+         * @throws IOException if an I/O error occurs while reading the attributes.
+         */
+        private ScanEntry readEntry(Path child)
+                throws IOException {
+            BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (!attrs.isSymbolicLink()) {
+                return new ScanEntry(child, attrs, false, entry);
+            }
+            try {
+                attrs = Files.readAttributes(child, BasicFileAttributes.class);
+            } catch (IOException ex) {
+                return new ScanEntry(child, attrs, true, entry);
+            }
+            if (attrs.isDirectory() && wouldLoop(child, attrs.fileKey())) {
+                return null;
+            }
+            return new ScanEntry(child, attrs, true, entry);
+        }
+        
+        /**
+         * Indicates if a folder is one of the ancestors of this task's folder.
+         *
+         * @param dir the folder to check.
+         * @param key the unique key of the folder to check (may be null).
+         * @return true if walking the folder would loop.
+         */
+        private boolean wouldLoop(Path dir, Object key) {
+            for (FolderTask ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+                if (key != null && ancestor.fileKey != null) {
+                    if (Objects.equals(key, ancestor.fileKey)) {
+                        return true;
+                    }
+                } else {
+                    try {
+                        if (Files.isSameFile(dir, ancestor.folder)) {
+                            return true;
+                        }
+                    } catch (IOException ex) {
+                        return false;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package fr.tikione.steam.cleaner.util.scan;
+
+import fr.tikione.ini.util.StringHelper;
+import fr.tikione.steam.cleaner.util.RegexLiterals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Folders patterns to exclude from the search path (see {@link fr.tikione.steam.cleaner.util.conf.DangerousItems}),
+ * compiled for fast checks:
+ * <ul>
+ * <li>patterns like <code>^\p{Alpha}:\\windows.*</code> are stored in a trie of path prefixes,</li>
+ * <li>patterns like <code>.*appdata\\local.*</code> are stored in a trie of path fragments, searched at every
+ * position of the path,</li>
+ * <li>other patterns are kept as regular expressions.</li>
+ * </ul>
+ * A sub-folder is only checked from its parent's decision: since the parent was not excluded, the prefixes and
+ * fragments that fit in the parent's path can't match, so only the end of the sub-folder's path is searched.
+ * <p>Like the regular expressions, comparisons are case-insensitive for US-ASCII characters only.
+ */
+public class FolderExclusions {
+    
+    /** Template element that matches a US-ASCII letter (<code>\p{Alpha}</code>). */
+    private static final char ALPHA = '\uFFFE';
+    
+    /** Template element that matches a whitespace character (<code>\p{Space}</code> or <code>\s</code>). */
+    private static final char SPACE = '\uFFFD';
+    
+    /** Patterns that match the beginning of a path. */
+    private final Trie prefixes = new Trie();
+    
+    /** Patterns that match anywhere in a path. */
+    private final Trie fragments = new Trie();
+    
+    /** Patterns that need the regular expressions engine. */
+    private final List<Pattern> regexes = new ArrayList<>(4);
+    
+    /**
+     * Compile some folders patterns to exclude.
+     *
+     * @param dangerousFolders list of folders patterns to exclude.
+     */
+    public FolderExclusions(List<Pattern> dangerousFolders) {
+        for (Pattern pattern : dangerousFolders) {
+            String regex = pattern.pattern();
+            boolean anchored = regex.startsWith("^");
+            if (anchored) {
+                regex = regex.substring(1);
+            } else if (regex.startsWith(".*")) {
+                regex = regex.substring(2);
+            }
+            if (regex.endsWith(".*") && !regex.endsWith("\\.*")) {
+                regex = regex.substring(0, regex.length() - 2);
+            }
+            String template = toTemplate(regex);
+            if (template == null || template.isEmpty()) {
+                regexes.add(pattern);
+            } else if (anchored) {
+                prefixes.add(template);
+            } else {
+                fragments.add(template);
+            }
+        }
+    }
+    
+    /**
+     * Convert a regular expression made of literal characters, <code>\p{Alpha}</code> and <code>\p{Space}</code>
+     * into a template.
+     *
+     * @param regex the regular expression.
+     * @return the template (literal characters in lower case, {@link #ALPHA} and {@link #SPACE}), or null if the
+     * regular expression contains other elements.
+     */
+    private static String toTemplate(String regex) {
+        StringBuilder template = new StringBuilder(regex.length());
+        int pos = 0;
+        while (pos < regex.length()) {
+            char c = regex.charAt(pos);
+            if (c == '\\') {
+                if (regex.startsWith("\\p{Alpha}", pos)) {
+                    template.append(ALPHA);
+                    pos += 9;
+                    continue;
+                }
+                if (regex.startsWith("\\p{Space}", pos)) {
+                    template.append(SPACE);
+                    pos += 9;
+                    continue;
+                }
+                if (regex.startsWith("\\s", pos)) {
+                    template.append(SPACE);
+                    pos += 2;
+                    continue;
+                }
+                if (pos + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(pos + 1))) {
+                    return null;
+                }
+                c = regex.charAt(pos + 1);
+                pos += 2;
+            } else if ("^$.|?*+()[]{}".indexOf(c) >= 0) {
+                return null;
+            } else {
+                pos++;
+            }
+            if (c == ALPHA || c == SPACE) {
+                return null;
+            }
+            template.append(RegexLiterals.toLowerCase(c));
+        }
+        return template.toString();
+    }
+    
+    /**
+     * Indicates if a folder has to be excluded from the search path.
+     *
+     * @param path the absolute path of the folder.
+     * @param parentLength the length of the parent folder's path if this parent was checked and not excluded,
+     * otherwise 0.
+     * @return true if the folder matches one of the patterns to exclude.
+     */
+    public boolean isExcluded(String path, int parentLength) {
+        if (parentLength < prefixes.maxLength && prefixes.matchesAt(path, 0)) {
+            return true;
+        }
+        if (fragments.maxLength > 0) {
+            int from = Math.max(0, parentLength - fragments.maxLength + 1);
+            for (int pos = from; pos < path.length(); pos++) {
+                if (fragments.matchesAt(path, pos)) {
+                    return true;
+                }
+            }
+        }
+        for (Pattern regex : regexes) {
+            if (StringHelper.checkRegex(path, regex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /** A trie of templates. */
+    private static class Trie {
+        
+        /** The root node. */
+        private final Node root = new Node();
+        
+        /** Length of the longest template. */
+        private int maxLength = 0;
+        
+        private void add(String template) {
+            Node node = root;
+            for (int i = 0; i < template.length(); i++) {
+                node = node.children.computeIfAbsent(template.charAt(i), c -> new Node());
+            }
+            node.terminal = true;
+            maxLength = Math.max(maxLength, template.length());
+        }
+        
+        /**
+         * Indicates if a template matches the text at a given position.
+         *
+         * @param text the text.
+         * @param pos the position to check.
+         * @return true if a whole template matches the text from this position.
+         */
+        private boolean matchesAt(String text, int pos) {
+            return matchesAt(root, text, pos);
+        }
+        
+        private static boolean matchesAt(Node node, String text, int pos) {
+            if (node.terminal) {
+                return true;
+            }
+            if (pos >= text.length()) {
+                return false;
+            }
+            char c = RegexLiterals.toLowerCase(text.charAt(pos));
+            Node next = node.children.get(c);
+            if (next != null && matchesAt(next, text, pos + 1)) {
+                return true;
+            }
+            next = node.children.get(ALPHA);
+            if (next != null && c >= 'a' && c <= 'z' && matchesAt(next, text, pos + 1)) {
+                return true;
+            }
+            next = node.children.get(SPACE);
+            return next != null && " \t\n\u000B\f\r".indexOf(c) >= 0 && matchesAt(next, text, pos + 1);
+        }
+    }
+    
+    /** A node of a trie. */
+    private static class Node {
+        
+        /** Sub-nodes, by literal character (in lower case), {@link #ALPHA} or {@link #SPACE}. */
+        private final Map<Character, Node> children = new HashMap<>(4);
+        
+        /** Indicates if a template ends on this node. */
+        private boolean terminal = false;
+    }
+}
@@ -0,0 +1,315 @@
+package fr.tikione.steam.cleaner.util.scan;
+
+import fr.tikione.steam.cleaner.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Live monitoring of the scanned folders with a {@link WatchService}: the files and folders created after a scan are
+ * reported as they appear, and the deleted ones as they disappear, so the results don't need a full rescan.
+ * <p>Every watched folder uses a watch key, and operating systems limit their number. Once the budget of watch keys
+ * is used up (or the operating system refuses a new one), the folders left are not watched: a rescan is then requested
+ * periodically instead. A rescan is also requested if some events were lost.
+ * <p>Symbolic links and junctions are not followed: a linked folder is neither watched nor scanned, and a linked base
+ * folder is covered by the periodic rescans.
+ * <p>The events are processed without holding the watcher's lock, so the watcher can be stopped at any time, even
+ * while a created folder is being scanned.
+ */
+public class FolderWatcher {
+    
+    /** List of folders patterns to exclude. */
+    private final List<Pattern> dangerousFolders;
+    
+    /** Folders patterns to exclude. */
+    private final FolderExclusions exclusions;
+    
+    /** Maximum number of watched folders. */
+    private final int maxWatchKeys;
+    
+    /** Delay between two rescans (in milliseconds) when some folders are not watched. */
+    private final long rescanPeriod;
+    
+    /** Notified with the changes. */
+    private final Listener listener;
+    
+    /** Watched folders, by watch key. */
+    private final Map<WatchKey, WatchedFolder> watched = new ConcurrentHashMap<>(256);
+    
+    /** Indicates if some folders are not watched, because of the watch keys budget or the operating system limits. */
+    private volatile boolean limited = false;
+    
+    /** The watch service, null once the watcher is stopped. */
+    private volatile WatchService watchService;
+    
+    /** Scans of the created folders, cancelled when the watcher is stopped. */
+    private final ScanTask scanTask = new ScanTask();
+    
+    /**
+     * Create a folders watcher.
+     *
+     * @param dangerousFolders list of folders patterns to exclude.
+     * @param maxWatchKeys maximum number of watched folders.
+     * @param rescanPeriod delay between two rescans (in milliseconds) when some folders are not watched.
+     * @param listener notified with the changes, from the watcher thread.
+     */
+    public FolderWatcher(List<Pattern> dangerousFolders, int maxWatchKeys, long rescanPeriod, Listener listener) {
+        this.dangerousFolders = dangerousFolders;
+        this.exclusions = new FolderExclusions(dangerousFolders);
+        this.maxWatchKeys = maxWatchKeys;
+        this.rescanPeriod = rescanPeriod;
+        this.listener = listener;
+    }
+    
+    /**
+     * Watch some base folders and their sub-folders. The changes are reported once the watcher is started.
+     *
+     * @param folders the base folders.
+     * @param maxDepth the recursive search depth of these folders.
+     * @throws IOException if the watch service can't be created.
+     */
+    public synchronized void watch(Collection<File> folders, int maxDepth)
+            throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+        }
+        for (File folder : folders) {
+            Path path = folder.toPath().toAbsolutePath();
+            if (Files.isSymbolicLink(path)) {
+                Log.info("Folder watcher: can't watch '" + path + "', this path is a link");
+                limited = true;
+            } else if (folder.isDirectory()) {
+                register(path, maxDepth, true);
+            }
+        }
+    }
+    
+    /**
+     * Report the changes in the watched folders, in a background thread.
+     */
+    public synchronized void start() {
+        if (watchService == null) {
+            return;
+        }
+        Log.info("Folder watcher: " + watched.size() + " folders watched" + (limited ? ", periodic rescans enabled" : ""));
+        Thread thread = new Thread(this::processEvents, "folder-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Stop watching the folders. Doesn't wait for the scan of a created folder: it is cancelled.
+     */
+    public void stop() {
+        scanTask.cancel();
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ex) {
+                Log.error(ex);
+            }
+        }
+    }
+    
+    /**
+     * Watch a folder and its sub-folders, within the search depth and the watch keys budget.
+     *
+     * @param folder the folder to watch.
+     * @param depth the remaining search depth under this folder.
+     * @param base indicates if the folder is a base folder.
+     */
+    private void register(Path folder, int depth, boolean base) {
+        WatchService service = watchService;
+        if (service == null) {
+            return;
+        }
+        try {
+            Files.walkFileTree(folder, EnumSet.noneOf(FileVisitOption.class), depth + 1,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                            if (scanTask.isCancelled()) {
+                                return FileVisitResult.TERMINATE;
+                            }
+                            if (exclusions.isExcluded(dir.toString(), 0)) {
+                                return FileVisitResult.SKIP_SUBTREE;
+                            }
+                            if (watched.size() >= maxWatchKeys) {
+                                limited = true;
+                                return FileVisitResult.TERMINATE;
+                            }
+                            try {
+                                WatchKey key = dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                                        StandardWatchEventKinds.ENTRY_DELETE);
+                                boolean isFolder = dir.equals(folder);
+                                int dirDepth = isFolder ? depth : depth - folder.relativize(dir).getNameCount();
+                                watched.put(key, new WatchedFolder(dir, dirDepth, base && isFolder));
+                            } catch (IOException ex) {
+                                Log.info("Folder watcher: can't watch '" + dir + "', " + ex);
+                                limited = true;
+                                return FileVisitResult.TERMINATE;
+                            } catch (ClosedWatchServiceException ex) {
+                                // The watcher was stopped.
+                                return FileVisitResult.TERMINATE;
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+                        
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        } catch (IOException ex) {
+            Log.error(ex);
+        }
+    }
+    
+    /**
+     * Wait for the changes in the watched folders and report them, until the watcher is stopped.
+     */
+    private void processEvents() {
+        long nextRescan = System.currentTimeMillis() + rescanPeriod;
+        try {
+            while (true) {
+                WatchService service = watchService;
+                if (service == null) {
+                    return;
+                }
+                WatchKey key = service.poll(1, TimeUnit.SECONDS);
+                if (key != null) {
+                    processEvents(key);
+                }
+                if (limited && System.currentTimeMillis() >= nextRescan) {
+                    nextRescan = System.currentTimeMillis() + rescanPeriod;
+                    listener.rescanNeeded();
+                }
+            }
+        } catch (ClosedWatchServiceException ex) {
+            // The watcher was stopped.
+        } catch (InterruptedException ex) {
+            Log.error(ex);
+        }
+    }
+    
+    private void processEvents(WatchKey key) {
+        WatchedFolder folder = watched.get(key);
+        if (watchService == null) {
+            return;
+        }
+        if (folder == null) {
+            key.cancel();
+            return;
+        }
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (scanTask.isCancelled()) {
+                return;
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                Log.info("Folder watcher: events lost in '" + folder.path + "', rescan needed");
+                listener.rescanNeeded();
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                listener.pathRemoved(folder.path.resolve((Path) event.context()));
+            } else {
+                created(folder, folder.path.resolve((Path) event.context()));
+            }
+        }
+        if (!key.reset()) {
+            watched.remove(key);
+        }
+    }
+    
+    /**
+     * Report a created (or renamed) file or folder, with the content of a folder. A link is reported as is: its target
+     * is not scanned.
+     *
+     * @param parent the folder that contains the new file or folder.
+     * @param path the new file or folder.
+     */
+    private void created(WatchedFolder parent, Path path) {
+        ScanEntry entry;
+        try {
+            entry = new ScanEntry(path, Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS),
+                    false);
+        } catch (IOException ex) {
+            // Already deleted, or not readable.
+            return;
+        }
+        if (!entry.isDirectory()) {
+            listener.entryAdded(entry);
+        } else if (parent.depth > 0
+                && !exclusions.isExcluded(path.toString(), parent.base ? 0 : parent.path.toString().length())) {
+            listener.entryAdded(entry);
+            int depth = parent.depth - 1;
+            new DirectoryScanner(depth, dangerousFolders, scanTask)
+                    .scan(Collections.singletonList(path.toFile()), listener::entryAdded);
+            register(path, depth, false);
+        }
+    }
+    
+    /** A watched folder. */
+    private static class WatchedFolder {
+        
+        private final Path path;
+        
+        /** The remaining search depth under the folder. */
+        private final int depth;
+        
+        /** Indicates if the folder is a base folder. */
+        private final boolean base;
+        
+        private WatchedFolder(Path path, int depth, boolean base) {
+            this.path = path;
+            this.depth = depth;
+            this.base = base;
+        }
+    }
+    
+    /**
+     * Receives the changes found by a folders watcher.
+     */
+    public interface Listener {
+        
+        /**
+         * A file or folder appeared in a watched folder (or in a new folder).
+         *
+         * @param entry the new file or folder.
+         */
+        void entryAdded(ScanEntry entry);
+        
+        /**
+         * A file or folder disappeared from a watched folder, with its content.
+         *
+         * @param path the removed file or folder.
+         */
+        void pathRemoved(Path path);
+        
+        /**
+         * Some changes may have been missed, a rescan is needed.
+         */
+        void rescanNeeded();
+    }
+}
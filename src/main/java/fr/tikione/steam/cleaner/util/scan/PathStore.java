@@ -0,0 +1,198 @@
+package fr.tikione.steam.cleaner.util.scan;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Compact store of the files and folders found by a scan. Every entry is a node that holds its name only, with the
+ * index of its parent folder: the common part of the paths is stored once. Names are kept in a single array of UTF-8
+ * bytes and the other properties in primitive arrays, so no object is kept per entry. The modification times are not
+ * kept.
+ * <p>The base folders are stored as nodes too (with their absolute path as name), but they are not entries found by
+ * the scan. Full paths are only rebuilt on demand, see {@link #getPath(int)} and {@link #getEntry(int)}.
+ * <p>Used as the scan sink: folders sizes rolled up by the scanner once their content has been walked are written to
+ * the store, even by the scanner threads.
+ */
+public class PathStore implements Consumer<ScanEntry> {
+    
+    private static final byte DIRECTORY = 1;
+    
+    private static final byte REGULAR_FILE = 1 << 1;
+    
+    private static final byte SYMBOLIC_LINK = 1 << 2;
+    
+    private static final byte SIZE_COMPLETE = 1 << 3;
+    
+    private static final byte BASE_FOLDER = 1 << 4;
+    
+    /** Number of nodes. */
+    private int count = 0;
+    
+    /** Index of the parent folder of each node, -1 for a base folder. */
+    private int[] parents;
+    
+    /** End of the name of each node in the names array (the name starts at the end of the previous one). */
+    private int[] nameEnds;
+    
+    /** Names of the nodes in UTF-8, one after the other. */
+    private byte[] names;
+    
+    private int namesLength = 0;
+    
+    /** Type of each node, see the flags constants. */
+    private byte[] flags;
+    
+    /** File size in bytes, or total size of the files in a folder. */
+    private long[] sizes;
+    
+    /**
+     * Create an empty store.
+     *
+     * @param capacity the expected number of files and folders.
+     */
+    public PathStore(int capacity) {
+        capacity = Math.max(16, capacity);
+        parents = new int[capacity];
+        nameEnds = new int[capacity];
+        names = new byte[capacity * 16];
+        flags = new byte[capacity];
+        sizes = new long[capacity];
+    }
+    
+    /**
+     * Store a file or folder found by the scan, and its parent folders if not stored yet.
+     *
+     * @param entry the file or folder.
+     */
+    @Override
+    public synchronized void accept(ScanEntry entry) {
+        indexOf(entry);
+    }
+    
+    private int indexOf(ScanEntry entry) {
+        if (entry.getStore() == this) {
+            return entry.getStoreIndex();
+        }
+        ScanEntry parent = entry.getParent();
+        int parentIndex = parent == null ? -1 : indexOf(parent);
+        if (count == parents.length) {
+            int capacity = count + (count >> 1);
+            parents = Arrays.copyOf(parents, capacity);
+            nameEnds = Arrays.copyOf(nameEnds, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        byte[] name = (parent == null ? entry.getPath().toString() : entry.getName()).getBytes(StandardCharsets.UTF_8);
+        if (namesLength + name.length > names.length) {
+            names = Arrays.copyOf(names, Math.max(namesLength + name.length, names.length + (names.length >> 1)));
+        }
+        System.arraycopy(name, 0, names, namesLength, name.length);
+        namesLength += name.length;
+        int index = count++;
+        parents[index] = parentIndex;
+        nameEnds[index] = namesLength;
+        flags[index] = (byte) ((entry.isDirectory() ? DIRECTORY : 0) | (entry.isRegularFile() ? REGULAR_FILE : 0)
+                | (entry.isSymbolicLink() ? SYMBOLIC_LINK : 0) | (entry.isSizeComplete() ? SIZE_COMPLETE : 0)
+                | (parent == null ? BASE_FOLDER : 0));
+        sizes[index] = entry.getSize();
+        entry.setStore(this, index);
+        return index;
+    }
+    
+    /**
+     * Set the total size of the files in a stored folder.
+     *
+     * @param index the folder's index.
+     * @param size the total size in bytes.
+     * @param complete indicates if the whole content was walked.
+     */
+    synchronized void setFolderSize(int index, long size, boolean complete) {
+        sizes[index] = size;
+        flags[index] = (byte) (complete ? flags[index] | SIZE_COMPLETE : flags[index] & ~SIZE_COMPLETE);
+    }
+    
+    /**
+     * Get the number of nodes, including the base folders.
+     *
+     * @return the number of nodes.
+     */
+    public synchronized int size() {
+        return count;
+    }
+    
+    /**
+     * Get the name of a node, without its parent path (the absolute path for a base folder).
+     *
+     * @param index the node's index.
+     * @return the file or folder name.
+     */
+    public synchronized String getName(int index) {
+        int start = index == 0 ? 0 : nameEnds[index - 1];
+        return new String(names, start, nameEnds[index] - start, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Indicates if a node is a base folder of the scan, rather than a file or folder found by the scan.
+     *
+     * @param index the node's index.
+     * @return true for a base folder.
+     */
+    public synchronized boolean isBaseFolder(int index) {
+        return (flags[index] & BASE_FOLDER) != 0;
+    }
+    
+    /**
+     * Indicates if a node is a folder.
+     *
+     * @param index the node's index.
+     * @return true for a folder.
+     */
+    public synchronized boolean isDirectory(int index) {
+        return (flags[index] & DIRECTORY) != 0;
+    }
+    
+    /**
+     * Indicates if a node is a regular file (not a folder, nor a broken link or a special file).
+     *
+     * @param index the node's index.
+     * @return true for a regular file.
+     */
+    public synchronized boolean isRegularFile(int index) {
+        return (flags[index] & REGULAR_FILE) != 0;
+    }
+    
+    /**
+     * Rebuild the absolute path of a node.
+     *
+     * @param index the node's index.
+     * @return the absolute path of the file or folder.
+     */
+    public synchronized Path getPath(int index) {
+        int depth = 0;
+        for (int node = index; parents[node] >= 0; node = parents[node]) {
+            depth++;
+        }
+        String[] more = new String[depth];
+        int node = index;
+        for (int level = depth - 1; level >= 0; level--) {
+            more[level] = getName(node);
+            node = parents[node];
+        }
+        return Paths.get(getName(node), more);
+    }
+    
+    /**
+     * Rebuild the entry of a node, as found by the scan (without its modification time).
+     *
+     * @param index the node's index.
+     * @return the file or folder.
+     */
+    public synchronized ScanEntry getEntry(int index) {
+        byte nodeFlags = flags[index];
+        return new ScanEntry(getPath(index), (nodeFlags & DIRECTORY) != 0, (nodeFlags & REGULAR_FILE) != 0,
+                (nodeFlags & SYMBOLIC_LINK) != 0, sizes[index], (nodeFlags & SIZE_COMPLETE) != 0, 0);
+    }
+}
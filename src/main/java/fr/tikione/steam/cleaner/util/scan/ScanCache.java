@@ -0,0 +1,248 @@
+package fr.tikione.steam.cleaner.util.scan;
+
+import fr.tikione.steam.cleaner.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Content of the folders found by the previous scan, used to list again only the folders that changed.
+ * <p>A folder's modification time changes when a file or folder is added, removed or renamed in it. While it stays
+ * the same, the names of the folder's children are the ones remembered, so the scan does not list the folder again:
+ * it only reads the attributes of the sub-folders (they are walked like any other folder) and replays the files that
+ * may match a redistributable package pattern. The other files are only remembered by their total size.
+ * <p>Files modified in place don't change their folder's modification time: their size may be out of date until the
+ * folder changes. The whole cache is dropped when the patterns used to select the files to remember change.
+ */
+public class ScanCache {
+    
+    /** Version of the cache file format. */
+    private static final int FORMAT_VERSION = 1;
+    
+    /**
+     * Folders modified less than this delay (in milliseconds) before the scan are not remembered: a change made in the
+     * same modification time unit (2 seconds on FAT file systems) would go unnoticed.
+     */
+    private static final long MODIFICATION_TIME_RESOLUTION = 2000;
+    
+    /** File to use for cache loading and saving. */
+    private final File cacheFile;
+    
+    /** Digest of the patterns used to select the files to remember. */
+    private final byte[] signature;
+    
+    /** Selects the files to remember by their name. */
+    private final Predicate<String> filesToRemember;
+    
+    /** Folders found by the previous scan, by absolute path. */
+    private Map<String, FolderState> previous = new HashMap<>(0);
+    
+    /** Folders found by the current scan, by absolute path. */
+    private final Map<String, FolderState> current = new ConcurrentHashMap<>(1024);
+    
+    /** Start time of the current scan. */
+    private long scanStart = Long.MIN_VALUE;
+    
+    /**
+     * Create a scan cache.
+     *
+     * @param cacheFile file to use for cache loading and saving.
+     * @param signature text that identifies the patterns used to select the files to remember (the cache file is
+     * ignored if it was saved with another signature).
+     * @param filesToRemember selects the files to remember by their name.
+     */
+    public ScanCache(File cacheFile, String signature, Predicate<String> filesToRemember) {
+        this.cacheFile = cacheFile;
+        this.signature = digest(signature);
+        this.filesToRemember = filesToRemember;
+    }
+    
+    private static byte[] digest(String text) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    /**
+     * Load the folders found by the previous scan. Nothing is loaded if the cache file doesn't exist, is corrupted or
+     * was saved with another signature.
+     */
+    public void load() {
+        previous = new HashMap<>(0);
+        current.clear();
+        if (!cacheFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            byte[] savedSignature = new byte[in.readUnsignedByte()];
+            in.readFully(savedSignature);
+            if (!Arrays.equals(signature, savedSignature)) {
+                Log.info("Scan cache: patterns changed, cache ignored");
+                return;
+            }
+            int nbFolders = in.readInt();
+            Map<String, FolderState> folders = new HashMap<>(nbFolders * 4 / 3 + 1);
+            for (int i = 0; i < nbFolders; i++) {
+                String path = in.readUTF();
+                folders.put(path, FolderState.read(in));
+            }
+            previous = folders;
+            Log.info("Scan cache: " + nbFolders + " folders loaded");
+        } catch (IOException ex) {
+            Log.error(ex);
+        }
+    }
+    
+    /**
+     * Save the folders found by the current scan. The folders that were not found by this scan are forgotten.
+     */
+    public void save() {
+        //noinspection ResultOfMethodCallIgnored
+        cacheFile.getAbsoluteFile().getParentFile().mkdirs();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeByte(signature.length);
+            out.write(signature);
+            out.writeInt(current.size());
+            for (Map.Entry<String, FolderState> folder : current.entrySet()) {
+                out.writeUTF(folder.getKey());
+                folder.getValue().write(out);
+            }
+            Log.info("Scan cache: " + current.size() + " folders saved");
+        } catch (IOException ex) {
+            Log.error(ex);
+        }
+    }
+    
+    /** Start a scan: the folders modified from now on are not remembered. */
+    void startScan() {
+        scanStart = System.currentTimeMillis();
+    }
+    
+    /**
+     * Get a folder's content found by the previous scan, if the folder did not change since.
+     *
+     * @param folder the folder.
+     * @param lastModified the folder's modification time.
+     * @return the folder's content, or null if unknown or out of date.
+     */
+    FolderState get(String folder, long lastModified) {
+        FolderState state = previous.get(folder);
+        return state == null || state.lastModified != lastModified ? null : state;
+    }
+    
+    /**
+     * Remember a folder's content found by the current scan.
+     *
+     * @param folder the folder.
+     * @param state the folder's content.
+     */
+    void put(String folder, FolderState state) {
+        if (state.lastModified < scanStart - MODIFICATION_TIME_RESOLUTION) {
+            current.put(folder, state);
+        }
+    }
+    
+    /**
+     * Indicates if a file has to be remembered, so it can be replayed while its folder doesn't change.
+     *
+     * @param fileName the file name.
+     * @return true if the file may match a redistributable package pattern.
+     */
+    boolean isToRemember(String fileName) {
+        return filesToRemember.test(fileName);
+    }
+    
+    /** Content of a folder found by a scan. */
+    static class FolderState {
+        
+        /** The folder's modification time, in milliseconds since the epoch. */
+        final long lastModified;
+        
+        /** Total size of the files in the folder (not in its sub-folders), except symbolic links. */
+        final long filesSize;
+        
+        /** Names of the sub-folders, including the ones excluded from the search. */
+        final String[] subFolders;
+        
+        /** The files to remember. */
+        final RememberedFile[] files;
+        
+        FolderState(long lastModified, long filesSize, String[] subFolders, RememberedFile[] files) {
+            this.lastModified = lastModified;
+            this.filesSize = filesSize;
+            this.subFolders = subFolders;
+            this.files = files;
+        }
+        
+        private static FolderState read(DataInputStream in)
+                throws IOException {
+            long lastModified = in.readLong();
+            long filesSize = in.readLong();
+            String[] subFolders = new String[in.readInt()];
+            for (int i = 0; i < subFolders.length; i++) {
+                subFolders[i] = in.readUTF();
+            }
+            RememberedFile[] files = new RememberedFile[in.readInt()];
+            for (int i = 0; i < files.length; i++) {
+                files[i] = new RememberedFile(in.readUTF(), in.readLong(), in.readLong(), in.readBoolean());
+            }
+            return new FolderState(lastModified, filesSize, subFolders, files);
+        }
+        
+        private void write(DataOutputStream out)
+                throws IOException {
+            out.writeLong(lastModified);
+            out.writeLong(filesSize);
+            out.writeInt(subFolders.length);
+            for (String subFolder : subFolders) {
+                out.writeUTF(subFolder);
+            }
+            out.writeInt(files.length);
+            for (RememberedFile file : files) {
+                out.writeUTF(file.name);
+                out.writeLong(file.size);
+                out.writeLong(file.lastModified);
+                out.writeBoolean(file.symbolicLink);
+            }
+        }
+    }
+    
+    /** A regular file remembered in its folder's content. */
+    static class RememberedFile {
+        
+        final String name;
+        
+        final long size;
+        
+        final long lastModified;
+        
+        final boolean symbolicLink;
+        
+        RememberedFile(String name, long size, long lastModified, boolean symbolicLink) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.symbolicLink = symbolicLink;
+        }
+    }
+}
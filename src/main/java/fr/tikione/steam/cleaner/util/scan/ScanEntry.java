@@ -0,0 +1,177 @@
+package fr.tikione.steam.cleaner.util.scan;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A file or folder found on the system storage during a scan. The type, size and modification time come from the
+ * attributes read while walking the folder, so no additional filesystem call is needed to query them.
+ * <p>The size of a folder is the total size of the files it contains, rolled up by the scanner once the folder's
+ * content has been walked. Like {@link org.apache.commons.io.FileUtils#sizeOfDirectory(File)}, the files and
+ * folders reached through a symbolic link are not counted.
+ */
+@Getter
+public class ScanEntry {
+    
+    /** Absolute path of the file or folder. */
+    private final Path path;
+    
+    /** Indicates if the entry is a folder. */
+    private final boolean directory;
+    
+    /** Indicates if the entry is a regular file (not a folder, nor a broken link or a special file). */
+    private final boolean regularFile;
+    
+    /** Indicates if the entry was reached through a symbolic link. */
+    private final boolean symbolicLink;
+    
+    /** File size in bytes, or total size of the files in a folder. */
+    private long size;
+    
+    /**
+     * Indicates if the size is known: always true for files. For folders, true when the whole content was walked
+     * (not cut by the search depth, a folder to exclude or an I/O error), otherwise false.
+     */
+    private boolean sizeComplete;
+    
+    /** Last modification time, in milliseconds since the epoch. */
+    private final long lastModified;
+    
+    /** Unique key of the file or folder (may be null), see {@link BasicFileAttributes#fileKey()}. */
+    private final Object fileKey;
+    
+    /** The folder that contains the entry, null if unknown. Lets a {@link PathStore} find the parent node. */
+    private final ScanEntry parent;
+    
+    /** The store that holds the entry, null if none. */
+    @Getter(AccessLevel.PACKAGE)
+    private PathStore store = null;
+    
+    /** The entry's index in its store. */
+    @Getter(AccessLevel.PACKAGE)
+    private int storeIndex = -1;
+    
+    /**
+     * Describe a file or folder found on the system storage.
+     *
+     * @param path the absolute path of the file or folder.
+     * @param attrs the attributes read while walking the parent folder.
+     * @param symbolicLink indicates if the path is a symbolic link (the attributes being the ones of its target).
+     */
+    public ScanEntry(Path path, BasicFileAttributes attrs, boolean symbolicLink) {
+        this(path, attrs, symbolicLink, null);
+    }
+    
+    /**
+     * Describe a file or folder found on the system storage by a scan.
+     *
+     * @param path the absolute path of the file or folder.
+     * @param attrs the attributes read while walking the parent folder.
+     * @param symbolicLink indicates if the path is a symbolic link (the attributes being the ones of its target).
+     * @param parent the folder that contains the entry.
+     */
+    ScanEntry(Path path, BasicFileAttributes attrs, boolean symbolicLink, ScanEntry parent) {
+        this.path = path;
+        this.directory = attrs.isDirectory();
+        this.regularFile = attrs.isRegularFile();
+        this.symbolicLink = symbolicLink || attrs.isSymbolicLink();
+        this.size = directory ? 0 : attrs.size();
+        this.sizeComplete = !directory;
+        this.lastModified = attrs.lastModifiedTime().toMillis();
+        this.fileKey = attrs.fileKey();
+        this.parent = parent;
+    }
+    
+    /**
+     * Describe a regular file remembered by a previous scan.
+     *
+     * @param path the absolute path of the file.
+     * @param size the file size in bytes.
+     * @param lastModified the last modification time, in milliseconds since the epoch.
+     * @param symbolicLink indicates if the path is a symbolic link.
+     * @param parent the folder that contains the file.
+     */
+    ScanEntry(Path path, long size, long lastModified, boolean symbolicLink, ScanEntry parent) {
+        this.path = path;
+        this.directory = false;
+        this.regularFile = true;
+        this.symbolicLink = symbolicLink;
+        this.size = size;
+        this.sizeComplete = true;
+        this.lastModified = lastModified;
+        this.fileKey = null;
+        this.parent = parent;
+    }
+    
+    /**
+     * Describe a file or folder rebuilt from a {@link PathStore}.
+     *
+     * @param path the absolute path of the file or folder.
+     * @param directory indicates if the entry is a folder.
+     * @param regularFile indicates if the entry is a regular file.
+     * @param symbolicLink indicates if the entry was reached through a symbolic link.
+     * @param size the file size in bytes, or total size of the files in a folder.
+     * @param sizeComplete indicates if the size is known.
+     * @param lastModified the last modification time, in milliseconds since the epoch.
+     */
+    ScanEntry(Path path, boolean directory, boolean regularFile, boolean symbolicLink, long size, boolean sizeComplete,
+              long lastModified) {
+        this.path = path;
+        this.directory = directory;
+        this.regularFile = regularFile;
+        this.symbolicLink = symbolicLink;
+        this.size = size;
+        this.sizeComplete = sizeComplete;
+        this.lastModified = lastModified;
+        this.fileKey = null;
+        this.parent = null;
+    }
+    
+    /**
+     * Set the total size of the files in a folder, once its content has been walked.
+     *
+     * @param size the total size in bytes.
+     * @param complete indicates if the whole content was walked.
+     */
+    void setFolderSize(long size, boolean complete) {
+        this.size = size;
+        this.sizeComplete = complete;
+        if (store != null) {
+            store.setFolderSize(storeIndex, size, complete);
+        }
+    }
+    
+    /**
+     * Remember the store that holds the entry, so the folder size can be written to it once known.
+     *
+     * @param store the store.
+     * @param storeIndex the entry's index in the store.
+     */
+    void setStore(PathStore store, int storeIndex) {
+        this.store = store;
+        this.storeIndex = storeIndex;
+    }
+    
+    /**
+     * Get the name of the file or folder, without its parent path.
+     *
+     * @return the file or folder name.
+     */
+    public String getName() {
+        Path fileName = path.getFileName();
+        return fileName == null ? path.toString() : fileName.toString();
+    }
+    
+    /**
+     * Get the file or folder as a {@link File} object.
+     *
+     * @return the file or folder.
+     */
+    public File toFile() {
+        return path.toFile();
+    }
+}
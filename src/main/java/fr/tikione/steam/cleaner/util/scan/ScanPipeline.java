@@ -0,0 +1,138 @@
+package fr.tikione.steam.cleaner.util.scan;
+
+import fr.tikione.steam.cleaner.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Streaming scan: the folders scanner feeds a bounded queue while matcher threads consume the entries as they arrive.
+ * Entries are never collected, so the memory used by a scan depends on what the matcher keeps, not on the number of
+ * files found on the disk.
+ */
+public class ScanPipeline {
+    
+    /** Number of entries handed to the matcher threads at once. */
+    private static final int BATCH_SIZE = 256;
+    
+    /** Maximum number of batches waiting in the queue; the scanner is paused when the queue is full. */
+    private static final int QUEUE_CAPACITY = 32;
+    
+    /** Marks the end of the scan. */
+    private static final List<ScanEntry> END_OF_SCAN = Collections.emptyList();
+    
+    /** The folders scanner. */
+    private final DirectoryScanner scanner;
+    
+    /** Number of matcher threads. */
+    private final int workers;
+    
+    /**
+     * Create a streaming scan.
+     *
+     * @param scanner the folders scanner.
+     * @param workers number of matcher threads.
+     */
+    public ScanPipeline(DirectoryScanner scanner, int workers) {
+        this.scanner = scanner;
+        this.workers = Math.max(1, workers);
+    }
+    
+    /**
+     * Scan some base folders and submit every file and folder found to a matcher.
+     *
+     * @param folders the base paths to initiate research from.
+     * @param matcher checks the files and folders found; called by several threads at the same time.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the matcher threads.
+     */
+    public void run(Collection<File> folders, Consumer<ScanEntry> matcher)
+            throws InterruptedException {
+        BlockingQueue<List<ScanEntry>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        List<Thread> threads = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(() -> consume(queue, matcher), "scan-matcher-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        try {
+            Batcher batcher = new Batcher(queue);
+            scanner.scan(folders, batcher);
+            batcher.flush();
+        } finally {
+            try {
+                for (int i = 0; i < workers; i++) {
+                    queue.put(END_OF_SCAN);
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            } catch (InterruptedException ex) {
+                threads.forEach(Thread::interrupt);
+                throw ex;
+            }
+        }
+    }
+    
+    /**
+     * Submit the queued entries to the matcher until the end of the scan.
+     *
+     * @param queue the queue of entries.
+     * @param matcher checks the files and folders found.
+     */
+    private static void consume(BlockingQueue<List<ScanEntry>> queue, Consumer<ScanEntry> matcher) {
+        try {
+            List<ScanEntry> batch;
+            while ((batch = queue.take()) != END_OF_SCAN) {
+                for (ScanEntry entry : batch) {
+                    try {
+                        matcher.accept(entry);
+                    } catch (RuntimeException ex) {
+                        Log.error(ex);
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Log.error(ex);
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /** Groups the entries found by the scanner into batches, and puts them into the queue. */
+    private static class Batcher implements Consumer<ScanEntry> {
+        
+        private final BlockingQueue<List<ScanEntry>> queue;
+        
+        private List<ScanEntry> batch = new ArrayList<>(BATCH_SIZE);
+        
+        private Batcher(BlockingQueue<List<ScanEntry>> queue) {
+            this.queue = queue;
+        }
+        
+        @Override
+        public void accept(ScanEntry entry) {
+            batch.add(entry);
+            if (batch.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+        
+        private void flush() {
+            if (!batch.isEmpty()) {
+                try {
+                    queue.put(batch);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the matcher threads", ex);
+                }
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+    }
+}
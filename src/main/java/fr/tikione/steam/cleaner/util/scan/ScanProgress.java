@@ -0,0 +1,95 @@
+package fr.tikione.steam.cleaner.util.scan;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of a scan, published by the scanner threads and sampled by the user interface at its own pace. Publishing
+ * only costs a counter increment: nobody is notified.
+ */
+public class ScanProgress {
+    
+    private final LongAdder folders = new LongAdder();
+    
+    private final LongAdder files = new LongAdder();
+    
+    private final LongAdder bytes = new LongAdder();
+    
+    private final LongAdder matches = new LongAdder();
+    
+    /** The latest folder entered by the scan, null if none yet. */
+    private volatile Path currentFolder = null;
+    
+    /**
+     * Publish a folder entered by the scan.
+     *
+     * @param folder the folder.
+     */
+    public void folderEntered(Path folder) {
+        folders.increment();
+        currentFolder = folder;
+    }
+    
+    /**
+     * Publish some files found by the scan.
+     *
+     * @param count the number of files.
+     * @param size the total size of the files in bytes.
+     */
+    public void filesFound(int count, long size) {
+        files.add(count);
+        bytes.add(size);
+    }
+    
+    /**
+     * Publish a redistributable package found.
+     */
+    public void matchFound() {
+        matches.increment();
+    }
+    
+    /**
+     * Get the number of folders entered so far.
+     *
+     * @return the number of folders.
+     */
+    public long getFolders() {
+        return folders.sum();
+    }
+    
+    /**
+     * Get the number of files found so far.
+     *
+     * @return the number of files.
+     */
+    public long getFiles() {
+        return files.sum();
+    }
+    
+    /**
+     * Get the total size of the files found so far.
+     *
+     * @return the size in bytes.
+     */
+    public long getBytes() {
+        return bytes.sum();
+    }
+    
+    /**
+     * Get the number of redistributable packages found so far.
+     *
+     * @return the number of redistributable packages.
+     */
+    public long getMatches() {
+        return matches.sum();
+    }
+    
+    /**
+     * Get the latest folder entered by the scan.
+     *
+     * @return the folder, null if none yet.
+     */
+    public Path getCurrentFolder() {
+        return currentFolder;
+    }
+}
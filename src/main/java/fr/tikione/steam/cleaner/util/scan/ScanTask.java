@@ -0,0 +1,56 @@
+package fr.tikione.steam.cleaner.util.scan;
+
+/**
+ * A running scan, shared by all the threads that work for it. The scan can be cancelled from any thread: every scanner
+ * thread checks the flag before each entry it reads, so it stops within a few file system calls, and the files and
+ * folders found so far are kept as partial results.
+ */
+public class ScanTask {
+    
+    /** Receives the scan progress. */
+    private final ScanProgress progress;
+    
+    /** Indicates if the scan has to be stopped. */
+    private volatile boolean cancelled = false;
+    
+    /**
+     * Create a scan task whose progress is not followed.
+     */
+    public ScanTask() {
+        this(new ScanProgress());
+    }
+    
+    /**
+     * Create a scan task.
+     *
+     * @param progress receives the scan progress.
+     */
+    public ScanTask(ScanProgress progress) {
+        this.progress = progress;
+    }
+    
+    /**
+     * Ask the scan to stop. The scanner threads stop as soon as they see the request; what they found so far is kept.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    /**
+     * Indicates if the scan has to be stopped.
+     *
+     * @return true if the scan was cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * Get the scan progress.
+     *
+     * @return the scan progress.
+     */
+    public ScanProgress getProgress() {
+        return progress;
+    }
+}
@@ -0,0 +1,251 @@
+package fr.tikione.steam.cleaner.util.scan;
+
+import fr.tikione.steam.cleaner.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Steam libraries resolver: reads <code>libraryfolders.vdf</code> to find every Steam library, then the
+ * <code>appmanifest_*.acf</code> files of each library to find the installed games folders
+ * (<code>steamapps/common/&lt;installdir&gt;</code>). Other Steam folders (workshop content, shader cache, downloads,
+ * etc.) don't contain redistributable packages of installed games and don't need to be searched.
+ */
+public class SteamLibraries {
+    
+    /** Libraries roots (folders that contain a <code>steamapps</code> folder). */
+    private final Set<File> libraries = new LinkedHashSet<>(4);
+    
+    /** Installed games folders. */
+    private final List<File> gameFolders = new ArrayList<>(64);
+    
+    /**
+     * Find the Steam libraries and their installed games.
+     *
+     * @param steamappsDir the <code>steamapps</code> folder of the Steam installation.
+     */
+    public SteamLibraries(File steamappsDir) {
+        File steamDir = steamappsDir.getAbsoluteFile().getParentFile();
+        File[] libraryFiles = {new File(steamappsDir, "libraryfolders.vdf"), new File(steamDir, "config/libraryfolders.vdf")};
+        boolean found = false;
+        for (File libraryFile : libraryFiles) {
+            if (libraryFile.isFile()) {
+                found = true;
+                libraries.add(steamDir);
+                try {
+                    Map<String, Object> root = parse(libraryFile.toPath());
+                    for (Object folders : root.values()) {
+                        if (folders instanceof Map) {
+                            readLibraries((Map<?, ?>) folders);
+                        }
+                    }
+                } catch (IOException ex) {
+                    Log.error(ex);
+                }
+            }
+        }
+        if (!found) {
+            return;
+        }
+        for (File library : libraries) {
+            readGameFolders(new File(library, "steamapps"));
+        }
+        Log.info("Steam libraries: " + libraries + ", " + gameFolders.size() + " installed games");
+    }
+    
+    /**
+     * Indicates if Steam libraries were found. If not, the whole Steam folder has to be searched.
+     *
+     * @return true if a libraries file was found.
+     */
+    public boolean isResolved() {
+        return !libraries.isEmpty();
+    }
+    
+    /**
+     * Get the Steam libraries roots.
+     *
+     * @return the folders that contain a <code>steamapps</code> folder.
+     */
+    public Set<File> getLibraries() {
+        return libraries;
+    }
+    
+    /**
+     * Get the installed games folders, in every Steam library.
+     *
+     * @return the <code>steamapps/common/&lt;installdir&gt;</code> folders that exist.
+     */
+    public List<File> getGameFolders() {
+        return gameFolders;
+    }
+    
+    /**
+     * Indicates if a folder is a Steam library root, or its <code>steamapps</code> or <code>steamapps/common</code>
+     * folder. Such a folder doesn't need to be searched: its installed games folders already are.
+     *
+     * @param folder the folder.
+     * @return true if the folder is a Steam library folder.
+     */
+    public boolean isLibraryFolder(File folder) {
+        File absFolder = folder.getAbsoluteFile();
+        for (File library : libraries) {
+            File steamappsDir = new File(library, "steamapps");
+            if (absFolder.equals(library) || absFolder.equals(steamappsDir) || absFolder.equals(new File(steamappsDir, "common"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Read the libraries listed in a <code>libraryfolders.vdf</code> file. Recent files list each library as a block
+     * with a <code>path</code> key, older ones as a numbered key with the path as value.
+     *
+     * @param folders content of the <code>LibraryFolders</code> block.
+     */
+    private void readLibraries(Map<?, ?> folders) {
+        for (Map.Entry<?, ?> folder : folders.entrySet()) {
+            Object path = null;
+            if (folder.getValue() instanceof Map) {
+                path = ((Map<?, ?>) folder.getValue()).get("path");
+            } else if (((String) folder.getKey()).matches("\\d+")) {
+                path = folder.getValue();
+            }
+            if (path instanceof String) {
+                File library = new File((String) path).getAbsoluteFile();
+                if (new File(library, "steamapps").isDirectory()) {
+                    libraries.add(library);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Read the installed games folders from the <code>appmanifest_*.acf</code> files of a library.
+     *
+     * @param steamappsDir the library's <code>steamapps</code> folder.
+     */
+    private void readGameFolders(File steamappsDir) {
+        File commonDir = new File(steamappsDir, "common");
+        try (DirectoryStream<Path> manifests = Files.newDirectoryStream(steamappsDir.toPath(), "appmanifest_*.acf")) {
+            for (Path manifest : manifests) {
+                try {
+                    Object appState = parse(manifest).get("appstate");
+                    Object installDir = appState instanceof Map ? ((Map<?, ?>) appState).get("installdir") : null;
+                    if (installDir instanceof String && !((String) installDir).isEmpty()) {
+                        File gameFolder = new File(commonDir, (String) installDir);
+                        if (gameFolder.isDirectory() && !gameFolders.contains(gameFolder)) {
+                            gameFolders.add(gameFolder);
+                        }
+                    }
+                } catch (IOException ex) {
+                    Log.info("Skipped Steam manifest: '" + manifest + "', " + ex);
+                }
+            }
+        } catch (IOException ex) {
+            Log.info("Skipped Steam library: '" + steamappsDir + "', " + ex);
+        }
+    }
+    
+    /**
+     * Parse a Valve KeyValues text file (<code>.vdf</code>, <code>.acf</code>).
+     *
+     * @param file the file to parse.
+     * @return the blocks and values of the file, by key (in lower case).
+     * @throws IOException if an I/O error occurs while reading the file.
+     */
+    private static Map<String, Object> parse(Path file)
+            throws IOException {
+        String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        return new Parser(text).readBlock();
+    }
+    
+    /** Valve KeyValues text parser: quoted keys and values, blocks in braces, and line comments. */
+    private static class Parser {
+        
+        private final String text;
+        
+        private int pos = 0;
+        
+        /** Indicates if the latest token read was a quoted string (not a brace). */
+        private boolean quoted = false;
+        
+        private Parser(String text) {
+            this.text = text;
+        }
+        
+        /**
+         * Read keys and values until the end of the current block (or of the text).
+         *
+         * @return the values (strings) and sub-blocks (maps), by key in lower case.
+         */
+        private Map<String, Object> readBlock() {
+            Map<String, Object> block = new LinkedHashMap<>(8);
+            String key;
+            while ((key = readToken()) != null && (quoted || !key.equals("}"))) {
+                String value = readToken();
+                if (value == null) {
+                    break;
+                }
+                block.put(key.toLowerCase(Locale.ROOT), !quoted && value.equals("{") ? readBlock() : value);
+            }
+            return block;
+        }
+        
+        /**
+         * Read the next token: a string (quotes removed, escapes resolved), an opening or closing brace.
+         *
+         * @return the token, or null at the end of the text.
+         */
+        private String readToken() {
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (Character.isWhitespace(c)) {
+                    pos++;
+                } else if (text.startsWith("//", pos)) {
+                    int eol = text.indexOf('\n', pos);
+                    pos = eol < 0 ? text.length() : eol + 1;
+                } else if (c == '{' || c == '}') {
+                    pos++;
+                    quoted = false;
+                    return String.valueOf(c);
+                } else if (c == '"') {
+                    quoted = true;
+                    StringBuilder token = new StringBuilder(32);
+                    pos++;
+                    while (pos < text.length() && text.charAt(pos) != '"') {
+                        char tc = text.charAt(pos++);
+                        if (tc == '\\' && pos < text.length()) {
+                            char escaped = text.charAt(pos++);
+                            tc = escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped;
+                        }
+                        token.append(tc);
+                    }
+                    pos++;
+                    return token.toString();
+                } else {
+                    quoted = true;
+                    int start = pos;
+                    while (pos < text.length() && !Character.isWhitespace(text.charAt(pos)) && text.charAt(pos) != '{'
+                            && text.charAt(pos) != '}' && text.charAt(pos) != '"') {
+                        pos++;
+                    }
+                    return text.substring(start, pos);
+                }
+            }
+            return null;
+        }
+    }
+}